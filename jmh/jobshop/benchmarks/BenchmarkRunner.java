@@ -0,0 +1,31 @@
+package jobshop.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/** Entry point of the benchmark suite.
+ *
+ * The classes of this directory are a separate JMH source set: they must be compiled with the JMH annotation
+ * processor, against the main classes. All benchmarks are run in throughput mode with the GC profiler, which
+ * reports the allocation rate (gc.alloc.rate.norm gives bytes allocated per operation).
+ * Usual JMH options can be passed on the command line, for instance <code>-p instance=ta21</code> to restrict
+ * the instances or <code>EncodingBenchmark</code> to select a subset of the benchmarks.
+ * Relative instance names are resolved in the instances/ directory, from the working directory.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        // run all benchmarks of the suite, unless some were selected on the command line
+        String include = commandLine.getIncludes().isEmpty() ? "jobshop.benchmarks" : commandLine.getIncludes().get(0);
+        new Runner(new OptionsBuilder()
+                .parent(commandLine)
+                .include(include)
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
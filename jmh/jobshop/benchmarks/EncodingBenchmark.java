@@ -0,0 +1,68 @@
+package jobshop.benchmarks;
+
+import jobshop.encodings.ResourceOrder;
+import jobshop.encodings.Schedule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/** Kernels of the encodings: decoding a resource order, extracting a critical path and checking a schedule.
+ * Decoding is measured with a new schedule per call, into a reused schedule, and for the makespan only. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Thread)
+public class EncodingBenchmark {
+
+    // buffers reused by the allocation-free decoders
+    Schedule target;
+    int[] scratch;
+
+    @Setup
+    public void setup(InstanceState state) {
+        target = new Schedule(state.pb);
+        scratch = new int[ResourceOrder.scratchSize(state.pb)];
+    }
+
+    @Benchmark
+    public void toSchedule(InstanceState state, Blackhole bh) {
+        bh.consume(state.order.toSchedule());
+    }
+
+    @Benchmark
+    public void decodeInto(InstanceState state, Blackhole bh) {
+        bh.consume(state.order.decodeInto(target, scratch));
+    }
+
+    @Benchmark
+    public void makespan(InstanceState state, Blackhole bh) {
+        bh.consume(state.order.makespan(scratch));
+    }
+
+    @Benchmark
+    public void criticalPath(InstanceState state, Blackhole bh) {
+        bh.consume(state.schedule.criticalPath());
+    }
+
+    @Benchmark
+    public void criticalPathOperations(InstanceState state, Blackhole bh) {
+        bh.consume(state.schedule.criticalPathOperations());
+    }
+
+    @Benchmark
+    public void isValid(InstanceState state, Blackhole bh) {
+        bh.consume(state.schedule.isValid());
+    }
+}
@@ -0,0 +1,42 @@
+package jobshop.benchmarks;
+
+import jobshop.solvers.GreedySolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/** Construction of a solution by the greedy solver, for each priority rule. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class GreedyBenchmark {
+
+    @Param({"SPT", "LPT", "SRPT", "LRPT", "EST_SPT", "EST_LPT", "EST_SRPT", "EST_LRPT"})
+    public GreedySolver.Priority priority;
+
+    GreedySolver solver;
+
+    @Setup
+    public void setup() {
+        solver = new GreedySolver(priority);
+    }
+
+    @Benchmark
+    public void solve(InstanceState state, Blackhole bh) {
+        bh.consume(solver.solve(state.pb, Long.MAX_VALUE));
+    }
+}
@@ -0,0 +1,57 @@
+package jobshop.benchmarks;
+
+import jobshop.Generator;
+import jobshop.Instance;
+import jobshop.encodings.ResourceOrder;
+import jobshop.encodings.Schedule;
+import jobshop.solvers.GreedySolver;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/** An instance together with a realistic solution (EST_SPT greedy) on which the kernels are measured. */
+@State(Scope.Benchmark)
+public class InstanceState {
+
+    /** Instances of increasing size: 6x6, 10x5, 10x10, 20x20, 30x20, 50x20, then generated ones.
+     * Any file path or size (generated with a fixed seed) can also be given, e.g. with
+     * <code>-p instance=path/to/instance</code> or <code>-p instance=1000x50</code>. */
+    @Param({"ft06", "la01", "ft10", "ta21", "ta41", "ta61", "100x20", "200x50"})
+    public String instance;
+
+    public Instance pb;
+    public ResourceOrder order;
+    public Schedule schedule;
+
+    @Setup
+    public void setup() throws IOException {
+        Matcher size = SIZE.matcher(instance);
+        if(size.matches())
+            pb = Generator.generate(instance, Integer.parseInt(size.group(1)), Integer.parseInt(size.group(2)),
+                    SEED, SEED, Generator.Distribution.UNIFORM, 1, 99);
+        else
+            pb = Instance.fromFile(resolve(instance));
+        schedule = new GreedySolver(GreedySolver.Priority.EST_SPT).solve(pb, Long.MAX_VALUE).get();
+        order = new ResourceOrder(schedule);
+    }
+
+    /** Generated instances are given as "JOBSxMACHINES". */
+    static final Pattern SIZE = Pattern.compile("(\\d+)x(\\d+)");
+
+    /** Seed of the generated instances. */
+    static final int SEED = 1;
+
+    /** Instances are looked up in the instances/ directory, unless an existing file is given. */
+    static Path resolve(String instance) {
+        Path path = Paths.get(instance);
+        return Files.isRegularFile(path) ? path : Paths.get("instances/", instance);
+    }
+}
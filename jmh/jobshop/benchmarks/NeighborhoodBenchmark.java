@@ -0,0 +1,69 @@
+package jobshop.benchmarks;
+
+import jobshop.solvers.neighborhood.MoveEvaluator;
+import jobshop.solvers.neighborhood.Nowicki;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Kernels of the Nowicki neighborhood: listing the moves, building the neighbors and estimating them.
+ * The estimates are measured on an evaluator loaded once, loading it being measured on its own. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Thread)
+public class NeighborhoodBenchmark {
+
+    final Nowicki nowicki = new Nowicki();
+
+    // evaluator holding the solution of the instance, and the moves of this solution
+    MoveEvaluator evaluator;
+    List<Nowicki.Swap> swaps;
+
+    @Setup
+    public void setup(InstanceState state) {
+        evaluator = new MoveEvaluator(state.pb);
+        evaluator.load(state.order);
+        swaps = nowicki.allSwaps(state.order);
+    }
+
+    @Benchmark
+    public void allSwaps(InstanceState state, Blackhole bh) {
+        bh.consume(nowicki.allSwaps(state.order));
+    }
+
+    @Benchmark
+    public void generateNeighbors(InstanceState state, Blackhole bh) {
+        bh.consume(nowicki.generateNeighbors(state.order));
+    }
+
+    @Benchmark
+    public void loadEvaluator(InstanceState state, Blackhole bh) {
+        bh.consume(evaluator.load(state.order));
+    }
+
+    @Benchmark
+    public void estimateAllSwaps(Blackhole bh) {
+        for(Nowicki.Swap swap : swaps) {
+            bh.consume(evaluator.estimate(swap));
+        }
+    }
+
+    @Benchmark
+    public int bestMove() {
+        return evaluator.bestMove(swaps);
+    }
+}
@@ -0,0 +1,181 @@
+package jobshop;
+
+import net.sourceforge.argparse4j.ArgumentParsers;
+import net.sourceforge.argparse4j.impl.Arguments;
+import net.sourceforge.argparse4j.inf.ArgumentParser;
+import net.sourceforge.argparse4j.inf.ArgumentParserException;
+import net.sourceforge.argparse4j.inf.Namespace;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Generates random instances, in the way of Taillard's benchmark generator (E. Taillard, "Benchmarks for basic
+ * scheduling problems", 1993): each job visits all machines in a random order, with random durations.
+ *
+ * With the uniform distribution and durations in [1, 99], a given pair of seeds produces the same instance
+ * as Taillard's generator (e.g. seeds 840612802 and 398197754 give ta01).
+ */
+public class Generator {
+
+    /** Distributions of the durations of tasks. */
+    public enum Distribution {
+        /** Uniform between the min and max durations (Taillard). */
+        UNIFORM,
+        /** Normal centered between the min and max durations, with 99.7% of the values in this range
+         * (the remaining ones are clipped). */
+        NORMAL
+    }
+
+    /** Largest valid seed. Seeds must be in [1, 2^31 - 2]: any other value is not a state of the generator
+     * (0 for instance stays 0 forever). */
+    public static final int MAX_SEED = Integer.MAX_VALUE - 1;
+
+    /** Taillard's random number generator: a Lehmer generator with multiplier 16807 modulo 2^31 - 1. */
+    static final class Random {
+        static final int A = 16807, B = 127773, C = 2836, M = Integer.MAX_VALUE;
+        int seed;
+
+        Random(int seed) {
+            this.seed = seed;
+        }
+
+        /** Uniform value in [0, 1). */
+        double next() {
+            int k = seed / B;
+            seed = A * (seed % B) - k * C;
+            if(seed < 0)
+                seed += M;
+            return seed / (double) M;
+        }
+
+        /** Uniform integer in [low, high]. */
+        int unif(int low, int high) {
+            return low + (int) Math.floor(next() * (high - low + 1));
+        }
+    }
+
+    /** Generates a new instance.
+     *
+     * @param name Name of the instance.
+     * @param numJobs Number of jobs.
+     * @param numMachines Number of machines, which is also the number of tasks of each job.
+     * @param timeSeed Seed of the durations, in [1, MAX_SEED].
+     * @param machineSeed Seed of the order of machines in each job, in [1, MAX_SEED].
+     * @param distribution Distribution of the durations.
+     * @param minDuration Smallest duration of a task.
+     * @param maxDuration Largest duration of a task.
+     */
+    public static Instance generate(String name, int numJobs, int numMachines, int timeSeed, int machineSeed,
+                                    Distribution distribution, int minDuration, int maxDuration) {
+        if(timeSeed < 1 || timeSeed > MAX_SEED || machineSeed < 1 || machineSeed > MAX_SEED) {
+            throw new RuntimeException("Seeds must be in [1, " + MAX_SEED + "]: " + timeSeed + ", " + machineSeed);
+        }
+        Instance pb = new Instance(name, numJobs, numMachines);
+
+        Random times = new Random(timeSeed);
+        for(int job = 0 ; job < numJobs ; job++) {
+            for(int task = 0 ; task < numMachines ; task++) {
+                pb.durations[job][task] = duration(times, distribution, minDuration, maxDuration);
+            }
+        }
+
+        // random permutation of the machines for each job
+        Random machines = new Random(machineSeed);
+        for(int job = 0 ; job < numJobs ; job++) {
+            for(int task = 0 ; task < numMachines ; task++) {
+                pb.machines[job][task] = task;
+            }
+            for(int task = 0 ; task < numMachines ; task++) {
+                int other = machines.unif(task, numMachines - 1);
+                int tmp = pb.machines[job][task];
+                pb.machines[job][task] = pb.machines[job][other];
+                pb.machines[job][other] = tmp;
+            }
+        }
+        pb.indexTasks();
+        return pb;
+    }
+
+    static int duration(Random random, Distribution distribution, int min, int max) {
+        switch (distribution) {
+            case UNIFORM:
+                return random.unif(min, max);
+            case NORMAL:
+                // Box-Muller transform, 1 - next() is in (0, 1]
+                double gaussian = Math.sqrt(-2 * Math.log(1 - random.next())) * Math.cos(2 * Math.PI * random.next());
+                long value = Math.round((min + max) / 2.0 + gaussian * (max - min) / 6.0);
+                return (int) Math.max(min, Math.min(max, value));
+            default:
+                throw new RuntimeException("Unknown distribution: " + distribution);
+        }
+    }
+
+    public static void main(String[] args) {
+        ArgumentParser parser = ArgumentParsers.newFor("jsp-generator").build()
+                .defaultHelp(true)
+                .description("Generates random jobshop instances.");
+        parser.addArgument("-j", "--jobs")
+                .required(true)
+                .type(Integer.class)
+                .help("Number of jobs.");
+        parser.addArgument("-m", "--machines")
+                .required(true)
+                .type(Integer.class)
+                .help("Number of machines (and of tasks per job).");
+        parser.addArgument("-s", "--seed")
+                .setDefault(1)
+                .type(Integer.class)
+                .choices(Arguments.range(1, MAX_SEED))
+                .help("Seed of the durations, in [1, 2^31 - 2].");
+        parser.addArgument("--machine-seed")
+                .type(Integer.class)
+                .choices(Arguments.range(1, MAX_SEED))
+                .help("Seed of the machine orders, in [1, 2^31 - 2]. Defaults to the seed of the durations.");
+        parser.addArgument("--distribution")
+                .setDefault("uniform")
+                .choices("uniform", "normal")
+                .help("Distribution of the durations.");
+        parser.addArgument("--min-duration")
+                .setDefault(1)
+                .type(Integer.class)
+                .help("Smallest duration of a task.");
+        parser.addArgument("--max-duration")
+                .setDefault(99)
+                .type(Integer.class)
+                .help("Largest duration of a task.");
+        parser.addArgument("--format")
+                .setDefault("text")
+                .choices("text", "binary")
+                .help("Format of the generated file. Both can be loaded by the solver.");
+        parser.addArgument("-o", "--output")
+                .required(true)
+                .help("File in which the instance is written. Its name is the name of the instance.");
+
+        Namespace ns = null;
+        try {
+            ns = parser.parseArgs(args);
+        } catch (ArgumentParserException e) {
+            parser.handleError(e);
+            System.exit(1);
+        }
+
+        int seed = ns.getInt("seed");
+        int machineSeed = ns.get("machine_seed") == null ? seed : ns.getInt("machine_seed");
+        Path output = Paths.get(ns.getString("output"));
+        Instance instance = generate(output.getFileName().toString(), ns.getInt("jobs"), ns.getInt("machines"),
+                seed, machineSeed, Distribution.valueOf(ns.getString("distribution").toUpperCase()),
+                ns.getInt("min_duration"), ns.getInt("max_duration"));
+
+        try {
+            if(ns.getString("format").equals("binary"))
+                instance.toBinaryFile(output);
+            else
+                instance.toTextFile(output);
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+}
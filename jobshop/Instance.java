@@ -3,11 +3,8 @@ package jobshop;
 import jobshop.encodings.Task;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Iterator;
-import java.util.Scanner;
-import java.util.stream.Collectors;
+import java.util.Arrays;
 
 /** Represents an instance of a JobShop problem. */
 public final class Instance {
@@ -30,6 +27,13 @@ public final class Instance {
     /** Matrix containing the machine on which each task must be scheduled. */
     final int[][] machines;
 
+    /** Inverse of the machines matrix: taskOfMachine[job][machine] is the task of the job executed on
+     * the machine, or -1 if there is none. Built by <code>indexTasks()</code> once all machines are known. */
+    final int[][] taskOfMachine;
+
+    /** Hash of the size, machines and durations of the instance. Built by <code>indexTasks()</code>. */
+    long fingerprint;
+
     /** Duration of the given task. */
     public int duration(int job, int task) {
         return durations[job][task];
@@ -52,11 +56,10 @@ public final class Instance {
 
     /** Among the tasks of the given job, returns the task number of the one that uses the given machine. */
     public int task_with_machine(int job, int wanted_machine) {
-        for(int task = 0 ; task < numTasks ; task++) {
-            if(machine(job, task) == wanted_machine)
-                return task;
-        }
-        throw new RuntimeException("No task targeting machine "+wanted_machine+" on job "+job);
+        int task = taskOfMachine[job][wanted_machine];
+        if(task == -1)
+            throw new RuntimeException("No task targeting machine "+wanted_machine+" on job "+job);
+        return task;
     }
 
     /**
@@ -72,29 +75,67 @@ public final class Instance {
 
         durations = new int[numJobs][numTasks];
         machines = new int[numJobs][numTasks];
+        taskOfMachine = new int[numJobs][numMachines];
     }
 
-    /** Parses a instance from a file. */
-    public static Instance fromFile(Path path) throws IOException {
-        String name = path.getFileName().toString();
-        Iterator<String> lines = Files.readAllLines(path).stream()
-                .filter(l -> !l.startsWith("#"))
-                .collect(Collectors.toList())
-                .iterator();
-
-        Scanner header = new Scanner(lines.next());
-        int numJobs = header.nextInt();
-        int numTasks = header.nextInt();
-        Instance pb = new Instance(name, numJobs, numTasks);
-
-        for(int job = 0 ; job<numJobs ; job++) {
-            Scanner line = new Scanner(lines.next());
+    /** Fills the <code>taskOfMachine</code> table and computes the fingerprint.
+     * Must be called once the machines and durations matrices have been loaded. */
+    void indexTasks() {
+        long hash = mix(((long) numJobs << 32) | numTasks);
+        for(int job = 0 ; job < numJobs ; job++) {
+            Arrays.fill(taskOfMachine[job], -1);
             for(int task = 0 ; task < numTasks ; task++) {
-                pb.machines[job][task] = line.nextInt();
-                pb.durations[job][task] = line.nextInt();
+                taskOfMachine[job][machines[job][task]] = task;
+                hash = mix(hash ^ (((long) machines[job][task] << 32) | durations[job][task]));
             }
         }
+        fingerprint = hash;
+    }
+
+    /** SplitMix64 finalizer, a bijective mix of the bits of x. */
+    private static long mix(long x) {
+        x = (x + 0x9E3779B97F4A7C15L) * 0xBF58476D1CE4E5B9L;
+        x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+        return x ^ (x >>> 31);
+    }
+
+    /** Hash of the content of the instance (size, machines and durations), that tells apart different
+     * instances with the same name. Two instances with the same content have the same fingerprint. */
+    public long fingerprint() {
+        return fingerprint;
+    }
+
+    /** Parses a instance from a file, either in the text or in the binary format. */
+    public static Instance fromFile(Path path) throws IOException {
+        return InstanceFormat.read(path);
+    }
+
+    /** Maximum number of instances kept by <code>fromCache()</code>. */
+    static final int CACHE_CAPACITY = 32;
+
+    /** Instances already loaded, keyed by the normalized absolute path of their file. */
+    static final LruCache<String, Instance> cache = new LruCache<>(CACHE_CAPACITY);
+
+    /** Returns the instance of the given file, parsing it only if the same file is not cached. Files with the
+     * same name in different directories are different instances.
+     * Instances are never modified once loaded, so the same object can be used by several solvers and threads. */
+    public static Instance fromCache(Path path) throws IOException {
+        String key = path.toAbsolutePath().normalize().toString();
+        Instance instance = cache.get(key);
+        if(instance == null) {
+            instance = fromFile(path);
+            cache.put(key, instance);
+        }
+        return instance;
+    }
+
+    /** Saves this instance in the text format. */
+    public void toTextFile(Path path) throws IOException {
+        InstanceFormat.writeText(this, path);
+    }
 
-        return pb;
+    /** Saves this instance in the compact binary format, that can later be loaded with <code>fromFile()</code>. */
+    public void toBinaryFile(Path path) throws IOException {
+        InstanceFormat.writeBinary(this, path);
     }
 }
@@ -0,0 +1,178 @@
+package jobshop;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/** Readers and writers of the two file formats of instances.
+ *
+ * The text format is the usual one: lines starting with '#' are comments, the first line gives the number of jobs
+ * and tasks, and each following line describes a job as a sequence of (machine, duration) pairs.
+ *
+ * The binary format is meant for large generated instances. All values are 32 bits big-endian integers:
+ * the magic number <code>MAGIC</code>, the version, the number of jobs and the number of tasks, followed by the
+ * (machine, duration) pairs of all tasks, job after job. It is memory-mapped when read.
+ */
+final class InstanceFormat {
+
+    /** First integer of binary files ("JSPB" in ASCII). */
+    static final int MAGIC = 0x4A535042;
+
+    /** Version of the binary format. */
+    static final int VERSION = 1;
+
+    /** Size of the header of binary files, in bytes. */
+    static final int HEADER_BYTES = 4 * Integer.BYTES;
+
+    private InstanceFormat() {}
+
+    /** Reads an instance in any of the supported formats, the format being detected from the first bytes. */
+    static Instance read(Path path) throws IOException {
+        String name = path.getFileName().toString();
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(Integer.BYTES);
+            channel.read(magic, 0);
+            if(magic.position() == Integer.BYTES && magic.getInt(0) == MAGIC)
+                return readBinary(name, channel);
+            else
+                return readText(name, channel);
+        }
+    }
+
+    /** Reads an instance in the binary format, mapping the file in memory. */
+    static Instance readBinary(String name, FileChannel channel) throws IOException {
+        if(channel.size() < HEADER_BYTES)
+            throw new IOException("Truncated header in binary instance " + name);
+        IntBuffer ints = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).asIntBuffer();
+        if(ints.get() != MAGIC)
+            throw new IOException("Not a binary instance: " + name);
+        int version = ints.get();
+        if(version != VERSION)
+            throw new IOException("Unsupported version " + version + " of binary instance " + name);
+        int numJobs = ints.get();
+        int numTasks = ints.get();
+        if(ints.remaining() < 2L * numJobs * numTasks)
+            throw new IOException("Truncated binary instance " + name);
+
+        // values are read straight from the mapped file into the instance
+        Instance pb = new Instance(name, numJobs, numTasks);
+        for(int job = 0 ; job < numJobs ; job++) {
+            for(int task = 0 ; task < numTasks ; task++) {
+                pb.machines[job][task] = ints.get();
+                pb.durations[job][task] = ints.get();
+            }
+        }
+        pb.indexTasks();
+        return pb;
+    }
+
+    /** Reads an instance in the text format, parsing the bytes of the file as they are streamed. */
+    static Instance readText(String name, ReadableByteChannel channel) throws IOException {
+        TextReader in = new TextReader(channel);
+        int numJobs = in.nextInt();
+        int numTasks = in.nextInt();
+        Instance pb = new Instance(name, numJobs, numTasks);
+
+        for(int job = 0 ; job<numJobs ; job++) {
+            for(int task = 0 ; task < numTasks ; task++) {
+                pb.machines[job][task] = in.nextInt();
+                pb.durations[job][task] = in.nextInt();
+            }
+        }
+        pb.indexTasks();
+        return pb;
+    }
+
+    /** Writes an instance in the text format. */
+    static void writeText(Instance instance, Path path) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append("# ").append(instance.name).append('\n');
+        sb.append(instance.numJobs).append(' ').append(instance.numTasks).append('\n');
+        for(int job = 0 ; job < instance.numJobs ; job++) {
+            for(int task = 0 ; task < instance.numTasks ; task++) {
+                if(task > 0)
+                    sb.append(' ');
+                sb.append(instance.machine(job, task)).append(' ').append(instance.duration(job, task));
+            }
+            sb.append('\n');
+        }
+        Files.writeString(path, sb);
+    }
+
+    /** Writes an instance in the binary format. */
+    static void writeBinary(Instance instance, Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + 2 * Integer.BYTES * instance.numJobs * instance.numTasks);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(instance.numJobs).putInt(instance.numTasks);
+        for(int job = 0 ; job < instance.numJobs ; job++) {
+            for(int task = 0 ; task < instance.numTasks ; task++) {
+                buffer.putInt(instance.machine(job, task)).putInt(instance.duration(job, task));
+            }
+        }
+        buffer.flip();
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while(buffer.hasRemaining())
+                channel.write(buffer);
+        }
+    }
+
+    /** Extracts the integers of a text file, skipping whitespaces and comment lines. */
+    static final class TextReader {
+        final ReadableByteChannel channel;
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+        // true if the next character is the first one of a line
+        boolean atLineStart = true;
+
+        TextReader(ReadableByteChannel channel) {
+            this.channel = channel;
+            buffer.limit(0);
+        }
+
+        /** Next byte of the file (0 to 255), or -1 at the end of the file. */
+        int read() throws IOException {
+            while(!buffer.hasRemaining()) {
+                buffer.clear();
+                int read = channel.read(buffer);
+                buffer.flip();
+                if(read == -1)
+                    return -1;
+            }
+            return buffer.get() & 0xFF;
+        }
+
+        int nextInt() throws IOException {
+            int c = read();
+            // skip whitespaces and comment lines
+            while(c == ' ' || c == '\t' || c == '\r' || c == '\n' || (c == '#' && atLineStart)) {
+                if(c == '#') {
+                    while(c != '\n' && c != -1)
+                        c = read();
+                }
+                atLineStart = c == '\n';
+                c = read();
+            }
+            atLineStart = false;
+            if(c == -1)
+                throw new IOException("Unexpected end of file");
+
+            boolean negative = c == '-';
+            if(negative)
+                c = read();
+            if(c < '0' || c > '9')
+                throw new IOException("Unexpected character '" + (char) c + "' while reading an integer");
+            int value = 0;
+            while(c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+                c = read();
+            }
+            // the character following the integer was consumed, remember if it was ending a line
+            atLineStart = c == '\n';
+            return negative ? -value : value;
+        }
+    }
+}
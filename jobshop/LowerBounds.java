@@ -0,0 +1,189 @@
+package jobshop;
+
+/**
+ * Lower bounds of the optimal makespan of an instance. No schedule can have a makespan smaller than any of them,
+ * so a solution whose makespan equals one of them is optimal.
+ *
+ * All bounds rely on the heads and tails of the tasks: the head of a task is the total duration of the tasks
+ * before it in its job, its tail is the total duration of the tasks after it.
+ */
+public final class LowerBounds {
+
+    /**
+     * Job-sum bound: the duration of the longest job.
+     * @param instance Instance to bound.
+     * @return The largest total duration of the tasks of a job.
+     */
+    public static int jobSum(Instance instance) {
+        int bound = 0;
+        for(int job = 0 ; job < instance.numJobs ; job++) {
+            int total = 0;
+            for(int task = 0 ; task < instance.numTasks ; task++)
+                total += instance.duration(job, task);
+            bound = Math.max(bound, total);
+        }
+        return bound;
+    }
+
+    /**
+     * Machine-load bound: the load of the busiest machine, which cannot start before the smallest head of its
+     * tasks and is followed at least by the smallest of their tails.
+     * @param instance Instance to bound.
+     * @return The largest value of (min head + total duration + min tail) over all machines.
+     */
+    public static int machineLoad(Instance instance) {
+        int[][] heads = heads(instance);
+        int[][] tails = tails(instance);
+        int bound = 0;
+        for(int machine = 0 ; machine < instance.numMachines ; machine++) {
+            int load = 0;
+            int minHead = Integer.MAX_VALUE;
+            int minTail = Integer.MAX_VALUE;
+            for(int job = 0 ; job < instance.numJobs ; job++) {
+                int task = instance.task_with_machine(job, machine);
+                load += instance.duration(job, task);
+                minHead = Math.min(minHead, heads[job][task]);
+                minTail = Math.min(minTail, tails[job][task]);
+            }
+            bound = Math.max(bound, minHead + load + minTail);
+        }
+        return bound;
+    }
+
+    /**
+     * One-machine preemptive bound: for each machine, the optimal value of the problem restricted to that machine,
+     * where each task is released at its head, must be followed by its tail, and may be interrupted.
+     * It dominates the machine-load bound.
+     * @param instance Instance to bound.
+     * @return The largest value of the Jackson preemptive schedule over all machines.
+     */
+    public static int oneMachinePreemptive(Instance instance) {
+        int[][] heads = heads(instance);
+        int[][] tails = tails(instance);
+        int[] release = new int[instance.numJobs];
+        int[] remaining = new int[instance.numJobs];
+        int[] tail = new int[instance.numJobs];
+        int[] heaps = new int[2 * instance.numJobs];
+        int bound = 0;
+        for(int machine = 0 ; machine < instance.numMachines ; machine++) {
+            for(int job = 0 ; job < instance.numJobs ; job++) {
+                int task = instance.task_with_machine(job, machine);
+                release[job] = heads[job][task];
+                remaining[job] = instance.duration(job, task);
+                tail[job] = tails[job][task];
+            }
+            bound = Math.max(bound, jacksonPreemptiveSchedule(release, remaining, tail, instance.numJobs, heaps));
+        }
+        return bound;
+    }
+
+    /**
+     * The best of all lower bounds.
+     * @param instance Instance to bound.
+     * @return A makespan that no schedule of the instance can beat.
+     */
+    public static int of(Instance instance) {
+        return Math.max(jobSum(instance), oneMachinePreemptive(instance));
+    }
+
+    /**
+     * Value of the Jackson preemptive schedule of k tasks on one machine: at any time, the available task with the
+     * largest tail is processed. This is the optimal value of the one-machine problem with preemption.
+     * Runs in O(k log k). Allocates its heaps, see the overload with a workspace to avoid it.
+     * @param release Time at which each task becomes available.
+     * @param remaining Duration of each task. These values are consumed: all of them are 0 on return.
+     * @param tail Time that must elapse after the completion of each task.
+     * @param k Number of tasks, only the first k elements of the arrays are read.
+     * @return The largest value of (completion time + tail) in the schedule.
+     */
+    public static int jacksonPreemptiveSchedule(int[] release, int[] remaining, int[] tail, int k) {
+        return jacksonPreemptiveSchedule(release, remaining, tail, k, new int[2 * k]);
+    }
+
+    /**
+     * Same as jacksonPreemptiveSchedule(release, remaining, tail, k), without allocating.
+     * @param heaps Workspace of at least 2k elements, overwritten.
+     */
+    public static int jacksonPreemptiveSchedule(int[] release, int[] remaining, int[] tail, int k, int[] heaps) {
+        // heaps[0, pending) holds the tasks not released yet, smallest release first, and
+        // heaps[k, k + available) the released unfinished tasks, largest tail first
+        int pending = 0;
+        int available = 0;
+        for(int i = 0 ; i < k ; i++)
+            push(heaps, 0, pending++, i, release, 1);
+
+        int time = 0;
+        int value = 0;
+        while(pending > 0 || available > 0) {
+            if(available == 0)
+                time = Math.max(time, release[heaps[0]]);
+            // release the tasks available at this time, tasks of duration 0 complete immediately
+            while(pending > 0 && release[heaps[0]] <= time) {
+                int task = heaps[0];
+                pop(heaps, 0, --pending, release, 1);
+                if(remaining[task] == 0)
+                    value = Math.max(value, time + tail[task]);
+                else
+                    push(heaps, k, available++, task, tail, -1);
+            }
+            if(available == 0)
+                continue;
+            // process the task with the largest tail until it completes or a new task is released
+            int selected = heaps[k];
+            int run = pending == 0 ? remaining[selected] : Math.min(remaining[selected], release[heaps[0]] - time);
+            time += run;
+            remaining[selected] -= run;
+            if(remaining[selected] == 0) {
+                pop(heaps, k, --available, tail, -1);
+                value = Math.max(value, time + tail[selected]);
+            }
+        }
+        return value;
+    }
+
+    /** Adds a task to the binary heap stored in heap[offset, offset + size), ordered by increasing sign * key[task]. */
+    private static void push(int[] heap, int offset, int size, int task, int[] key, int sign) {
+        int i = size;
+        while(i > 0 && sign * key[task] < sign * key[heap[offset + (i - 1) / 2]]) {
+            heap[offset + i] = heap[offset + (i - 1) / 2];
+            i = (i - 1) / 2;
+        }
+        heap[offset + i] = task;
+    }
+
+    /** Removes the top of the binary heap stored in heap[offset, offset + size + 1), size being its new size. */
+    private static void pop(int[] heap, int offset, int size, int[] key, int sign) {
+        if(size == 0)
+            return;
+        int task = heap[offset + size];
+        int i = 0;
+        while(2 * i + 1 < size) {
+            int child = 2 * i + 1;
+            if(child + 1 < size && sign * key[heap[offset + child + 1]] < sign * key[heap[offset + child]])
+                child++;
+            if(sign * key[heap[offset + child]] >= sign * key[task])
+                break;
+            heap[offset + i] = heap[offset + child];
+            i = child;
+        }
+        heap[offset + i] = task;
+    }
+
+    /** Head of each task: total duration of the previous tasks of its job. */
+    private static int[][] heads(Instance instance) {
+        int[][] heads = new int[instance.numJobs][instance.numTasks];
+        for(int job = 0 ; job < instance.numJobs ; job++)
+            for(int task = 1 ; task < instance.numTasks ; task++)
+                heads[job][task] = heads[job][task-1] + instance.duration(job, task-1);
+        return heads;
+    }
+
+    /** Tail of each task: total duration of the next tasks of its job. */
+    private static int[][] tails(Instance instance) {
+        int[][] tails = new int[instance.numJobs][instance.numTasks];
+        for(int job = 0 ; job < instance.numJobs ; job++)
+            for(int task = instance.numTasks - 2 ; task >= 0 ; task--)
+                tails[job][task] = tails[job][task+1] + instance.duration(job, task+1);
+        return tails;
+    }
+}
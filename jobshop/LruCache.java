@@ -0,0 +1,49 @@
+package jobshop;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** A bounded map that evicts its least recently used entry when full. It can be shared between threads.
+ *
+ * @param <K> Type of the keys.
+ * @param <V> Type of the values.
+ */
+public final class LruCache<K, V> {
+
+    /** Maximum number of entries. */
+    public final int capacity;
+
+    // a LinkedHashMap in access order iterates from the least to the most recently used entry
+    private final LinkedHashMap<K, V> entries;
+
+    /** Creates an empty cache holding at most <code>capacity</code> entries. */
+    public LruCache(int capacity) {
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > LruCache.this.capacity;
+            }
+        };
+    }
+
+    /** Returns the value associated to the key, or null if it is not in the cache. */
+    public synchronized V get(K key) {
+        return entries.get(key);
+    }
+
+    /** Associates a value to the key, possibly evicting the least recently used entry. */
+    public synchronized void put(K key, V value) {
+        entries.put(key, value);
+    }
+
+    /** Number of entries currently in the cache. */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /** Removes all entries. */
+    public synchronized void clear() {
+        entries.clear();
+    }
+}
@@ -1,17 +1,23 @@
 package jobshop;
 
 import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 import jobshop.encodings.Schedule;
 import jobshop.solvers.*;
 import net.sourceforge.argparse4j.ArgumentParsers;
+import net.sourceforge.argparse4j.impl.Arguments;
 import net.sourceforge.argparse4j.inf.ArgumentParser;
 import net.sourceforge.argparse4j.inf.ArgumentParserException;
 import net.sourceforge.argparse4j.inf.Namespace;
@@ -38,7 +44,30 @@ public class Main {
                 .nargs("+")
                 .required(true)
                 .help("Instance(s) to solve (space separated if more than one). All instances starting with the given " +
-                        "string will be selected. (e.g. \"ft\" will select the instances ft06, ft10 and ft20.");
+                        "string will be selected. (e.g. \"ft\" will select the instances ft06, ft10 and ft20. " +
+                        "The path of an instance file (e.g. generated by jobshop.Generator) can also be given.");
+        parser.addArgument("--parallel")
+                .setDefault(1)
+                .type(Integer.class)
+                .help("Number of (instance, solver) runs executed at the same time. Each run keeps its own timeout " +
+                        "and results are printed in the same order as a sequential run. Default is 1.");
+        parser.addArgument("--max-evaluations")
+                .type(Long.class)
+                .help("Stop each run after this number of neighbor evaluations. Together with --max-iterations and " +
+                        "a large timeout, this makes a benchmark independent of the load of the machine.");
+        parser.addArgument("--max-iterations")
+                .type(Long.class)
+                .help("Stop each run after this number of iterations of the solver.");
+        parser.addArgument("--stop-at-best-known")
+                .action(Arguments.storeTrue())
+                .help("Stop a run as soon as it reaches the best known makespan of its instance.");
+        parser.addArgument("--metrics")
+                .help("File in which the search statistics of each run (iterations, evaluations, time to best, ...) " +
+                        "are written, one line per (instance, solver).");
+        parser.addArgument("--metrics-format")
+                .choices("csv", "jsonl")
+                .setDefault("csv")
+                .help("Format of the metrics file: CSV with a header line, or one JSON object per line.");
 
         // parse command line arguments
         Namespace ns = null;
@@ -60,30 +89,76 @@ public class Main {
         // convert the timeout from seconds to milliseconds.
         long solveTimeMs = ns.getLong("timeout") * 1000;
 
+        // limits on the work done by each run, in addition to the timeout
+        SearchBudget budget = SearchBudget.unlimited();
+        if(ns.getLong("max_evaluations") != null)
+            budget = budget.withMaxEvaluations(ns.getLong("max_evaluations"));
+        if(ns.getLong("max_iterations") != null)
+            budget = budget.withMaxIterations(ns.getLong("max_iterations"));
+        boolean stopAtBestKnown = ns.getBoolean("stop_at_best_known");
+
         // Get the list of solvers that we should benchmark.
         // We also check that we have a solver available for the given name and print an error message otherwise.
         List<String> solversToTest = ns.getList("solver");
         List<Solver> solvers = solversToTest.stream().map(Solver::getSolver).collect(Collectors.toList());
 
         // retrieve all instances on which we should run the solvers.
-        List<String> instances = new ArrayList<>();
+        List<Path> instances = new ArrayList<>();
         List<String> instancePrefixes = ns.getList("instance");
         for(String instancePrefix : instancePrefixes) {
+            if(Files.isRegularFile(Paths.get(instancePrefix))) {
+                // path to an instance file, that may not be a known instance
+                instances.add(Paths.get(instancePrefix));
+                continue;
+            }
             List<String> matches = BestKnownResults.instancesMatching(instancePrefix);
             if(matches.isEmpty()) {
                 System.err.println("ERROR: instance prefix \"" + instancePrefix + "\" does not match any instance.");
                 System.err.println("       available instances: " + Arrays.toString(BestKnownResults.instances));
                 System.exit(1);
             }
-            instances.addAll(matches);
+            for(String match : matches)
+                instances.add(Paths.get("instances/", match));
         }
-
         // average runtime of each solver
         float[] avg_runtimes = new float[solversToTest.size()];
-        // average distance to best known result for each solver
+        // average distance to best known result (or to the lower bound for unknown instances) for each solver
         float[] avg_distances = new float[solversToTest.size()];
 
-        try {
+        // runs are executed by a pool of workers, but their results are read in order
+        int parallelism = ns.getInt("parallel");
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+
+        // optional file receiving the statistics of each run
+        String metricsFile = ns.getString("metrics");
+        boolean metricsAsJson = ns.getString("metrics_format").equals("jsonl");
+
+        try (PrintWriter metrics = metricsFile == null ? null : new PrintWriter(Files.newBufferedWriter(Paths.get(metricsFile)))) {
+            if(metrics != null && !metricsAsJson)
+                metrics.println(SearchStatistics.csvHeader());
+
+            // load all instances and submit all runs, each run creating its own solver so that no state is shared
+            List<Instance> loadedInstances = new ArrayList<>();
+            List<Integer> lowerBounds = new ArrayList<>();
+            List<List<Future<Run>>> runs = new ArrayList<>();
+            for(Path path : instances) {
+                Instance instance = Instance.fromCache(path);
+                loadedInstances.add(instance);
+                int lowerBound = LowerBounds.of(instance);
+                lowerBounds.add(lowerBound);
+
+                // a solution reaching the lower bound is optimal: there is no point in searching further
+                int target = stopAtBestKnown && BestKnownResults.isKnown(instance.name)
+                        ? Math.max(lowerBound, BestKnownResults.of(instance.name))
+                        : lowerBound;
+                SearchBudget instanceBudget = budget.withTarget(target);
+                List<Future<Run>> instanceRuns = new ArrayList<>();
+                for(String solverName : solversToTest) {
+                    instanceRuns.add(executor.submit(() -> Run.execute(Solver.getSolver(solverName), instance, solveTimeMs, instanceBudget, lowerBound)));
+                }
+                runs.add(instanceRuns);
+            }
+
             // header of the result table :
             //   - solver names (first line)
             //   - name of each column (second line)
@@ -91,65 +166,65 @@ public class Main {
             for(String s : solversToTest)
                 output.printf("%-30s", s);
             output.println();
-            output.print("instance size  best      ");
+            output.print("instance size   best     ");
             for(String s : solversToTest) {
                 output.print("runtime makespan ecart        ");
             }
             output.println();
 
-            // for all instances, load it from f
-            for(String instanceName : instances) {
-                // get the best known result for this instance
-                int bestKnown = BestKnownResults.of(instanceName);
-
-                // load instance from file.
-                Path path = Paths.get("instances/", instanceName);
-                Instance instance = Instance.fromFile(path);
+            // for all instances, print the results of the solvers
+            boolean anyUnknown = false;
+            for(int instanceId = 0 ; instanceId < instances.size() ; instanceId++) {
+                Instance instance = loadedInstances.get(instanceId);
+                // get the best known result for this instance, or its lower bound if there is none
+                boolean known = BestKnownResults.isKnown(instance.name);
+                int reference = known ? BestKnownResults.of(instance.name) : lowerBounds.get(instanceId);
+                if(!known)
+                    anyUnknown = true;
 
                 // print some general statistics on the instance
-                output.printf("%-8s %-5s %4d      ",instanceName, instance.numJobs +"x"+instance.numTasks, bestKnown);
-
-                // run all selected solvers on the instance and print the results
-                for(int solverId = 0 ; solverId < solvers.size() ; solverId++) {
-                    // Select the next solver to run. Given the solver name passed on the command line,
-                    // we lookup the `Main.solvers` hash map to get the solver object with the given name.
-                    Solver solver = solvers.get(solverId);
-
-                    // start chronometer and compute deadline for the solver to provide a result.
-                    long start = System.currentTimeMillis();
-                    long deadline = System.currentTimeMillis() + solveTimeMs;
-                    // run the solver on the current instance
-                    Optional<Schedule> result = solver.solve(instance, deadline);
-                    // measure elapsed time (in milliseconds)
-                    long runtime = System.currentTimeMillis() - start;
+                output.printf("%-8s %-5s %5s     ",instance.name, instance.numJobs +"x"+instance.numTasks, known ? reference : reference + "*");
+
+                // wait for the result of all selected solvers on the instance and print them
+                for(int solverId = 0 ; solverId < solversToTest.size() ; solverId++) {
+                    Run run = runs.get(instanceId).get(solverId).get();
 
                     // check that the solver returned a valid solution
-                    if(result.isEmpty() || !result.get().isValid()) {
+                    if(run.result.isEmpty() || !run.result.get().isValid()) {
                         System.err.println("ERROR: solver did not provide a valid schedule");
                         System.exit(1); // bug in implementation, bail out
                     }
                     // we have a valid schedule
-                    Schedule schedule = result.get();
+                    Schedule schedule = run.result.get();
 
                     // compute some statistics on the solution and print them.
                     int makespan = schedule.makespan();
-                    float dist = 100f * (makespan - bestKnown) / (float) bestKnown;
-                    avg_runtimes[solverId] += (float) runtime / (float) instances.size();
+                    avg_runtimes[solverId] += (float) run.runtime / (float) instances.size();
+                    float dist = 100f * (makespan - reference) / (float) reference;
                     avg_distances[solverId] += dist / (float) instances.size();
-
-                    output.printf("%7d %8s %5.1f        ", runtime, makespan, dist);
+                    output.printf("%7d %8s %5.1f        ", run.runtime, makespan, dist);
                     output.flush();
+
+                    if(metrics != null) {
+                        String solverName = solversToTest.get(solverId);
+                        metrics.println(metricsAsJson
+                                ? run.statistics.toJson(instance.name, solverName)
+                                : run.statistics.toCsv(instance.name, solverName));
+                    }
                 }
                 output.println();
             }
 
 
             // we have finished all benchmarks, compute the average solve time and distance of each solver.
-            output.printf("%-8s %-5s %4s      ", "AVG", "-", "-");
+            output.printf("%-8s %-5s %5s     ", "AVG", "-", "-");
             for(int solverId = 0 ; solverId < solversToTest.size() ; solverId++) {
                 output.printf("%7.1f %8s %5.1f        ", avg_runtimes[solverId], "-", avg_distances[solverId]);
             }
-
+            output.println();
+            if(anyUnknown)
+                output.println("* no known result, lower bound: the distance to the optimum is at most the one shown");
+            executor.shutdown();
 
 
         } catch (Exception e) {
@@ -158,4 +233,38 @@ public class Main {
             System.exit(1);
         }
     }
+
+    /** Result of running a solver on an instance. */
+    static final class Run {
+        /** Time taken by the solver, in milliseconds. */
+        final long runtime;
+        /** Schedule returned by the solver. */
+        final Optional<Schedule> result;
+        /** Work done by the solver. */
+        final SearchStatistics statistics;
+
+        Run(long runtime, Optional<Schedule> result, SearchStatistics statistics) {
+            this.runtime = runtime;
+            this.result = result;
+            this.statistics = statistics;
+        }
+
+        /** Runs the solver with a deadline computed when the run actually starts, in addition to the given budget.
+         * The run is marked optimal if its makespan reaches the lower bound of the instance. */
+        static Run execute(Solver solver, Instance instance, long solveTimeMs, SearchBudget budget, int lowerBound) {
+            SearchStatistics statistics = new SearchStatistics();
+            // start chronometer and compute deadline for the solver to provide a result.
+            long start = System.currentTimeMillis();
+            long deadline = System.currentTimeMillis() + solveTimeMs;
+            // run the solver on the current instance
+            statistics.start(deadline);
+            Optional<Schedule> result = solver.solve(instance, budget.withDeadline(deadline), statistics);
+            statistics.stop();
+            if(result.isPresent() && result.get().makespan() <= lowerBound)
+                statistics.provenOptimal = true;
+            // measure elapsed time (in milliseconds)
+            long runtime = System.currentTimeMillis() - start;
+            return new Run(runtime, result, statistics);
+        }
+    }
 }
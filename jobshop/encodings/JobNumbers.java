@@ -0,0 +1,147 @@
+package jobshop.encodings;
+
+import jobshop.Instance;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/** Encoding of a solution by a sequence of job numbers (operation-based representation).
+ *
+ * Each job appears numTasks times in the sequence: its i-th occurrence stands for its i-th task.
+ * The schedule is built by placing the tasks in the order of the sequence, each one as soon as its job and its
+ * machine are free. Any sequence containing each job the right number of times decodes to a valid schedule,
+ * which makes this encoding convenient for crossover.
+ */
+public final class JobNumbers extends Encoding {
+
+    /** A numJobs * numTasks array containing the representation by job numbers. */
+    public final int[] jobs;
+
+    /** In case the encoding is only partially filled, indicates the index of the first
+     * element of `jobs` that has not been set yet. */
+    public int nextToSet = 0;
+
+    /** Creates a new empty encoding. */
+    public JobNumbers(Instance instance) {
+        super(instance);
+
+        jobs = new int[instance.numJobs * instance.numMachines];
+        Arrays.fill(jobs, -1);
+    }
+
+    /** Creates a new encoding from an existing sequence of job numbers, that is copied. */
+    public JobNumbers(Instance instance, int[] jobs) {
+        super(instance);
+        assert jobs.length == instance.numJobs * instance.numTasks;
+        this.jobs = jobs.clone();
+        this.nextToSet = jobs.length;
+    }
+
+    /** Creates an encoding whose schedule is the given one: tasks are listed by start time, then by job number. */
+    public static JobNumbers fromSchedule(Schedule schedule) {
+        Instance pb = schedule.instance;
+        // all tasks sorted by start time (then by job number), encoded as (startTime << 32 | job)
+        long[] tasks = new long[pb.numJobs * pb.numTasks];
+        for(int job = 0 ; job < pb.numJobs ; job++) {
+            for(int task = 0 ; task < pb.numTasks ; task++) {
+                tasks[job * pb.numTasks + task] = ((long) schedule.startTime(job, task) << 32) | job;
+            }
+        }
+        Arrays.sort(tasks);
+
+        JobNumbers encoding = new JobNumbers(pb);
+        for(long t : tasks) {
+            encoding.addTask((int) t);
+        }
+        return encoding;
+    }
+
+    /** Appends the next task of the given job to the sequence. */
+    public void addTask(int jobNumber) {
+        this.jobs[nextToSet++] = jobNumber;
+    }
+
+    /** Size of the scratch array needed by <code>makespan()</code> and <code>decodeInto()</code>. */
+    public static int scratchSize(Instance instance) {
+        return 2 * instance.numJobs + instance.numMachines;
+    }
+
+    /** Computes the makespan of the encoded solution without allocating anything.
+     *
+     * @param scratch Working array of at least <code>scratchSize(instance)</code> elements, overwritten.
+     */
+    public int makespan(int[] scratch) {
+        return decode(null, scratch);
+    }
+
+    /** Writes the start times of the encoded solution in an existing schedule of the same instance,
+     * without allocating anything.
+     *
+     * @param target Schedule whose start times are all overwritten.
+     * @param scratch Working array of at least <code>scratchSize(instance)</code> elements, overwritten.
+     * @return The makespan of the solution.
+     */
+    public int decodeInto(Schedule target, int[] scratch) {
+        assert target.instance == instance;
+        target.criticalPredecessor = null;
+        return decode(target, scratch);
+    }
+
+    /** Places all tasks in sequence, recording their start times in target if it is not null. */
+    private int decode(Schedule target, int[] scratch) {
+        int numJobs = instance.numJobs;
+        // scratch[0, numJobs): next task of each job
+        // scratch[numJobs, 2 numJobs): time at which each job is free
+        // scratch[2 numJobs, 2 numJobs + numMachines): time at which each machine is free
+        Arrays.fill(scratch, 0, scratchSize(instance), 0);
+        int jobFree = numJobs;
+        int machineFree = 2 * numJobs;
+
+        int makespan = 0;
+        for(int i = 0 ; i < nextToSet ; i++) {
+            int job = jobs[i];
+            int task = scratch[job]++;
+            int machine = instance.machine(job, task);
+            int start = Math.max(scratch[jobFree + job], scratch[machineFree + machine]);
+            int end = start + instance.duration(job, task);
+            if(target != null)
+                target.times[job][task] = start;
+            scratch[jobFree + job] = end;
+            scratch[machineFree + machine] = end;
+            makespan = Math.max(makespan, end);
+        }
+        return makespan;
+    }
+
+    @Override
+    public Optional<Schedule> toSchedule() {
+        Schedule schedule = new Schedule(instance);
+        decodeInto(schedule, new int[scratchSize(instance)]);
+        return Optional.of(schedule);
+    }
+
+    /** Creates an exact copy of this encoding. */
+    public JobNumbers copy() {
+        JobNumbers copy = new JobNumbers(instance, jobs);
+        copy.nextToSet = nextToSet;
+        return copy;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(Arrays.copyOfRange(jobs,0, nextToSet));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        JobNumbers that = (JobNumbers) o;
+        return nextToSet == that.nextToSet && Arrays.equals(jobs, that.jobs);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(jobs) + nextToSet;
+    }
+}
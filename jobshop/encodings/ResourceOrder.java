@@ -3,27 +3,42 @@ package jobshop.encodings;
 import jobshop.Instance;
 
 import java.util.Arrays;
-import java.util.Comparator;
 import java.util.Optional;
-import java.util.stream.IntStream;
 
-/** Encoding of a solution by the ordering of tasks on each machine. */
+/** Encoding of a solution by the ordering of tasks on each machine.
+ *
+ * The order is stored in primitive arrays: for each machine, the job numbers of its tasks in execution order
+ * (the task of a job on a machine is implied by the instance), and for each task its position on its machine.
+ * Tasks are identified by the integer <code>job * numTasks + task</code>.
+ *
+ * A Zobrist hash of the order is maintained along with it: each (machine, position, job) triple has a pseudo-random
+ * key, and the hash is the XOR of the keys of all filled positions. Swapping two tasks updates it in O(1), so that
+ * solutions can be looked up in a cache without hashing the whole order.
+ */
 public final class ResourceOrder extends Encoding {
 
-    // for each machine m, taskByMachine[m] is an array of tasks to be
-    // executed on this machine in the same order
-    final Task[][] tasksByMachine;
+    // for machine m, jobsByMachine[m * numJobs + i] is the job of the i-th task
+    // to be executed on this machine (-1 if not initialized yet)
+    final int[] jobsByMachine;
+
+    // for each task (job * numTasks + task), its index in the queue of its machine (-1 if not initialized yet)
+    final int[] positionOfTask;
 
     // for each machine, indicate how many tasks have been initialized
     final int[] nextFreeSlot;
 
+    // XOR of the Zobrist keys of all (machine, position, job) triples of the order
+    long zobrist;
+
     /** Creates a new empty resource order. */
     public ResourceOrder(Instance instance)
     {
         super(instance);
 
-        // matrix of null elements (null is the default value of objects)
-        tasksByMachine = new Task[instance.numMachines][instance.numJobs];
+        jobsByMachine = new int[instance.numMachines * instance.numJobs];
+        Arrays.fill(jobsByMachine, -1);
+        positionOfTask = new int[instance.numJobs * instance.numTasks];
+        Arrays.fill(positionOfTask, -1);
 
         // no task scheduled on any machine (0 is the default value)
         nextFreeSlot = new int[instance.numMachines];
@@ -32,62 +47,94 @@ public final class ResourceOrder extends Encoding {
     /** Creates a resource order from a schedule. */
     public ResourceOrder(Schedule schedule)
     {
-        super(schedule.instance);
+        this(schedule.instance);
         Instance pb = schedule.instance;
 
-        this.tasksByMachine = new Task[pb.numMachines][];
-        this.nextFreeSlot = new int[instance.numMachines];
-
-        for(int m = 0; m<schedule.instance.numMachines ; m++) {
-            final int machine = m;
-
-            // for this machine, find all tasks that are executed on it and sort them by their start time
-            tasksByMachine[m] =
-                    IntStream.range(0, pb.numJobs) // all job numbers
-                            .mapToObj(j -> new Task(j, pb.task_with_machine(j, machine))) // all tasks on this machine (one per job)
-                            .sorted(Comparator.comparing(t -> schedule.startTime(t.job, t.task))) // sorted by start time
-                            .toArray(Task[]::new); // as new array and store in tasksByMachine
-
-            // indicate that all tasks have been initialized for machine m
-            nextFreeSlot[m] = instance.numJobs;
+        // for each machine, tasks sorted by start time (then by job number), encoded as (startTime << 32 | job)
+        long[] tasksOnMachine = new long[pb.numJobs];
+        for(int m = 0; m<pb.numMachines ; m++) {
+            for(int j = 0 ; j < pb.numJobs ; j++) {
+                tasksOnMachine[j] = ((long) schedule.startTime(j, pb.task_with_machine(j, m)) << 32) | j;
+            }
+            Arrays.sort(tasksOnMachine);
+            for(long t : tasksOnMachine) {
+                int job = (int) t;
+                addTaskToMachine(m, job, pb.task_with_machine(job, m));
+            }
         }
     }
 
     public ResourceOrder(ResourceOrder original) {
         super(original.instance);
         this.nextFreeSlot = original.nextFreeSlot.clone();
-        this.tasksByMachine = new Task[original.tasksByMachine.length][];
-        for(int i=0 ; i<this.tasksByMachine.length ; i++) {
-            this.tasksByMachine[i] = original.tasksByMachine[i].clone();
-        }
+        this.jobsByMachine = original.jobsByMachine.clone();
+        this.positionOfTask = original.positionOfTask.clone();
+        this.zobrist = original.zobrist;
     }
 
-    public Task getTaskFromMatrix(int machine,int indice){return this.tasksByMachine[machine][indice];}
+    /** Overwrites this resource order with the content of another one of the same instance.
+     * Contrary to <code>copy()</code>, this does not allocate anything. */
+    public void copyFrom(ResourceOrder original) {
+        assert original.instance == this.instance;
+        System.arraycopy(original.jobsByMachine, 0, jobsByMachine, 0, jobsByMachine.length);
+        System.arraycopy(original.positionOfTask, 0, positionOfTask, 0, positionOfTask.length);
+        System.arraycopy(original.nextFreeSlot, 0, nextFreeSlot, 0, nextFreeSlot.length);
+        zobrist = original.zobrist;
+    }
+
+    public Task getTaskFromMatrix(int machine,int indice){return getTaskOfMachine(machine, indice);}
 
     public int getIndexOnMachine(Task t,int machine){
-        int index = -1;
-        for(int i = 0;i<this.instance.numJobs;i++){
-            if(t.equals(this.tasksByMachine[machine][i])){
-                index = i;
-                break;
-            }
-        }
-        if(index == -1){
-            System.out.println("LA tâche n'a pas été trouvée dans la matrice");
-        }
-        return index;
+        assert instance.machine(t) == machine;
+        return getIndexOnMachine(t.job, t.task);
+    }
+
+    /** Index of the given task in the queue of its machine, or -1 if it has not been added yet. */
+    public int getIndexOnMachine(int job, int task) {
+        return positionOfTask[job * instance.numTasks + task];
     }
 
+    /** Puts the task at the given index of the queue of its machine. The task that was at this index, if any, is
+     * removed from the order, and so is the previous position of the task, if it was already on the machine.
+     * Positions before the index that are still empty are left empty: the order cannot be decoded until they are
+     * filled. */
     public void setTaskinMatrix(int machine,int indice,Task t){
-        this.tasksByMachine[machine][indice] = t;
+        if(instance.machine(t) != machine) {
+            throw new RuntimeException("Task " + t + " cannot be scheduled on machine "+machine);
+        }
+        int slot = machine * instance.numJobs + indice;
+        int previous = jobsByMachine[slot];
+        if(previous != -1) {
+            // the displaced task no longer has a position
+            zobrist ^= key(machine, indice, previous);
+            positionOfTask[previous * instance.numTasks + instance.task_with_machine(previous, machine)] = -1;
+        }
+        int op = t.job * instance.numTasks + t.task;
+        int oldIndex = positionOfTask[op];
+        if(oldIndex != -1) {
+            // the task moves: its previous slot becomes empty
+            zobrist ^= key(machine, oldIndex, t.job);
+            jobsByMachine[machine * instance.numJobs + oldIndex] = -1;
+        }
+        jobsByMachine[slot] = t.job;
+        positionOfTask[op] = indice;
+        zobrist ^= key(machine, indice, t.job);
+        nextFreeSlot[machine] = Math.max(nextFreeSlot[machine], indice + 1);
     }
 
     /** Adds the given task to the queue of the given machine. */
     public void addTaskToMachine(int machine, Task task) {
-        if(instance.machine(task) != machine) {
-            throw new RuntimeException("Task " + task + " cannot be scheduled on machine "+machine);
+        addTaskToMachine(machine, task.job, task.task);
+    }
+
+    /** Adds the task (job, task) to the queue of the given machine. */
+    public void addTaskToMachine(int machine, int job, int task) {
+        if(instance.machine(job, task) != machine) {
+            throw new RuntimeException("Task (" + job + ", " + task + ") cannot be scheduled on machine "+machine);
         }
-        tasksByMachine[machine][nextFreeSlot[machine]] = task;
+        jobsByMachine[machine * instance.numJobs + nextFreeSlot[machine]] = job;
+        positionOfTask[job * instance.numTasks + task] = nextFreeSlot[machine];
+        zobrist ^= key(machine, nextFreeSlot[machine], job);
         nextFreeSlot[machine] += 1;
     }
 
@@ -98,7 +145,18 @@ public final class ResourceOrder extends Encoding {
      * @return The i-th task scheduled on a machine.
      */
     public Task getTaskOfMachine(int machine, int taskIndex) {
-        return tasksByMachine[machine][taskIndex];
+        int job = getJobOfMachine(machine, taskIndex);
+        return new Task(job, instance.task_with_machine(job, machine));
+    }
+
+    /** Returns the job of the i-th task scheduled on a particular machine, without allocating a Task.
+     *
+     * @param machine Machine on which the task to retrieve is scheduled.
+     * @param taskIndex Index of the task in the queue for this machine.
+     * @return The job of the i-th task scheduled on a machine.
+     */
+    public int getJobOfMachine(int machine, int taskIndex) {
+        return jobsByMachine[machine * instance.numJobs + taskIndex];
     }
 
     /** Exchange the order of two tasks that are scheduled on a given machine.
@@ -108,62 +166,202 @@ public final class ResourceOrder extends Encoding {
      * @param indexTask2 Position of the second task in the machine's queue
      */
     public void swapTasks(int machine, int indexTask1, int indexTask2) {
-        Task tmp = tasksByMachine[machine][indexTask1];
-        tasksByMachine[machine][indexTask1] = tasksByMachine[machine][indexTask2];
-        tasksByMachine[machine][indexTask2] = tmp;
+        zobrist = hashAfterSwap(machine, indexTask1, indexTask2);
+        int offset = machine * instance.numJobs;
+        int job1 = jobsByMachine[offset + indexTask1];
+        int job2 = jobsByMachine[offset + indexTask2];
+        jobsByMachine[offset + indexTask1] = job2;
+        jobsByMachine[offset + indexTask2] = job1;
+        positionOfTask[job1 * instance.numTasks + instance.task_with_machine(job1, machine)] = indexTask2;
+        positionOfTask[job2 * instance.numTasks + instance.task_with_machine(job2, machine)] = indexTask1;
+    }
+
+    /** Moves a task of a machine to another position in the machine's queue, shifting the tasks in between.
+     *
+     * @param machine Machine on which the task is scheduled.
+     * @param from Current position of the task in the machine's queue.
+     * @param to Position of the task in the machine's queue after the move.
+     */
+    public void moveTask(int machine, int from, int to) {
+        int offset = machine * instance.numJobs;
+        int job = jobsByMachine[offset + from];
+        int step = from < to ? 1 : -1;
+        zobrist = hashAfterMove(machine, from, to);
+        for(int i = from ; i != to ; i += step) {
+            int shifted = jobsByMachine[offset + i + step];
+            jobsByMachine[offset + i] = shifted;
+            positionOfTask[shifted * instance.numTasks + instance.task_with_machine(shifted, machine)] = i;
+        }
+        jobsByMachine[offset + to] = job;
+        positionOfTask[job * instance.numTasks + instance.task_with_machine(job, machine)] = to;
+    }
+
+    /** Zobrist hash of the order. Equal orders have equal hashes, whatever the way they were built. */
+    public long zobristHash() {
+        return zobrist;
+    }
+
+    /** Zobrist hash that the order would have after <code>swapTasks(machine, indexTask1, indexTask2)</code>, computed
+     * in O(1) without modifying it. */
+    public long hashAfterSwap(int machine, int indexTask1, int indexTask2) {
+        int job1 = getJobOfMachine(machine, indexTask1);
+        int job2 = getJobOfMachine(machine, indexTask2);
+        return zobrist ^ key(machine, indexTask1, job1) ^ key(machine, indexTask2, job2)
+                ^ key(machine, indexTask1, job2) ^ key(machine, indexTask2, job1);
+    }
+
+    /** Zobrist hash that the order would have after <code>moveTask(machine, from, to)</code>, computed in
+     * O(|to - from|) without modifying it. */
+    public long hashAfterMove(int machine, int from, int to) {
+        int offset = machine * instance.numJobs;
+        int job = jobsByMachine[offset + from];
+        int step = from < to ? 1 : -1;
+        long hash = zobrist ^ key(machine, from, job) ^ key(machine, to, job);
+        for(int i = from ; i != to ; i += step) {
+            int shifted = jobsByMachine[offset + i + step];
+            hash ^= key(machine, i + step, shifted) ^ key(machine, i, shifted);
+        }
+        return hash;
+    }
+
+    /** Zobrist key of the job at the given position of the machine: a bijective mix (SplitMix64 finalizer) of the
+     * index of the triple, which gives the same keys as a table of random numbers without storing it. */
+    private long key(int machine, int position, int job) {
+        long x = (((long) machine * instance.numJobs + position) * instance.numJobs + job + 1) * 0x9E3779B97F4A7C15L;
+        x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+        x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+        return x ^ (x >>> 31);
+    }
+
+    /** Size of the scratch array needed by <code>makespan()</code> and <code>decodeInto()</code>. */
+    public static int scratchSize(Instance instance) {
+        return 2 * instance.numJobs + 3 * instance.numMachines + instance.numJobs * instance.numTasks;
+    }
+
+    /** Computes the makespan of the encoded solution without allocating anything.
+     *
+     * @param scratch Working array of at least <code>scratchSize(instance)</code> elements, overwritten.
+     * @return The makespan, or -1 if the resource order contains a cycle (or misses a task).
+     */
+    public int makespan(int[] scratch) {
+        return decode(null, scratch);
+    }
+
+    /** Writes the start times of the encoded solution in an existing schedule of the same instance, together with
+     * its critical predecessors, without allocating anything once the schedule has been decoded into.
+     *
+     * @param target Schedule whose start times are all overwritten. Its content is meaningless if the decoding fails.
+     * @param scratch Working array of at least <code>scratchSize(instance)</code> elements, overwritten.
+     * @return The makespan, or -1 if the resource order contains a cycle (or misses a task).
+     */
+    public int decodeInto(Schedule target, int[] scratch) {
+        assert target.instance == instance;
+        return decode(target, scratch);
     }
 
     @Override
     public Optional<Schedule> toSchedule() {
-        // indicates, for each task that have been scheduled, its start time
         Schedule schedule = new Schedule(instance);
+        if(decode(schedule, new int[scratchSize(instance)]) == -1)
+            return Optional.empty();
+        return Optional.of(schedule);
+    }
+
+    /** Places each task as soon as its predecessors on its job and its machine are placed, recording the start
+     * times and critical predecessors in target if it is not null. */
+    private int decode(Schedule target, int[] scratch) {
+        int numJobs = instance.numJobs;
+        int numTasks = instance.numTasks;
+        int numMachines = instance.numMachines;
+        // scratch[0, numJobs): number of tasks scheduled for each job
+        // scratch[jobFree + job]: time at which each job is free
+        // scratch[machineNext + machine]: number of tasks scheduled on each machine
+        // scratch[machineFree + machine]: time at which each machine is free
+        // scratch[machineLast + machine]: last task scheduled on each machine (job * numTasks + task)
+        // scratch[ready, ready + numJobs * numTasks): tasks that have no unscheduled predecessor on their job
+        //   and machine, in the order in which they are scheduled. Each task enters this queue exactly once,
+        //   when its last predecessor gets scheduled.
+        int jobFree = numJobs;
+        int machineNext = 2 * numJobs;
+        int machineFree = machineNext + numMachines;
+        int machineLast = machineFree + numMachines;
+        int ready = machineLast + numMachines;
+        Arrays.fill(scratch, 0, ready, 0);
+
+        // for each task, the predecessor that delays its start (see Schedule.criticalPredecessor)
+        int[] criticalPredecessor = null;
+        if(target != null) {
+            criticalPredecessor = target.criticalPredecessor != null ? target.criticalPredecessor : new int[numJobs * numTasks];
+            target.criticalPredecessor = null;
+        }
 
-        // for each job, how many tasks have been scheduled (0 initially)
-        int[] nextToScheduleByJob = new int[instance.numJobs];
-
-        // for each machine, how many tasks have been scheduled (0 initially)
-        int[] nextToScheduleByMachine = new int[instance.numMachines];
-
-        // for each machine, earliest time at which the machine can be used
-        int[] releaseTimeOfMachine = new int[instance.numMachines];
-
-
-        // loop while there remains a job that has unscheduled tasks
-        while(IntStream.range(0, instance.numJobs).anyMatch(m -> nextToScheduleByJob[m] < instance.numTasks)) {
-
-            // selects a task that has no unscheduled predecessor on its job and machine :
-            //  - it is the next to be schedule on a machine
-            //  - it is the next to be scheduled on its job
-            // If there is no such task, we have cyclic dependency and the solution is invalid.
-            Optional<Task> schedulable =
-                    IntStream.range(0, instance.numMachines) // all machines ...
-                    .filter(m -> nextToScheduleByMachine[m] < instance.numJobs) // ... with unscheduled jobs
-                    .mapToObj(m -> this.tasksByMachine[m][nextToScheduleByMachine[m]]) // tasks that are next to schedule on a machine ...
-                    .filter(task -> task.task == nextToScheduleByJob[task.job])  // ... and on their job
-                    .findFirst(); // select the first one if any
-
-            if(schedulable.isPresent()) {
-                // we have a schedulable task, lets call it t
-                Task t = schedulable.get();
-                int machine = instance.machine(t.job, t.task);
-
-                // compute the earliest start time (est) of the task
-                int est = t.task == 0 ? 0 : schedule.endTime(t.job, t.task-1);
-                est = Math.max(est, releaseTimeOfMachine[instance.machine(t)]);
-                schedule.setStartTime(t.job, t.task, est);
-
-                // mark the task as scheduled
-                nextToScheduleByJob[t.job]++;
-                nextToScheduleByMachine[machine]++;
-                // increase the release time of the machine
-                releaseTimeOfMachine[machine] = est + instance.duration(t.job, t.task);
-            } else {
-                // no tasks are schedulable, there is no solution for this resource ordering
-                return Optional.empty();
+        // initially, the ready tasks are the first tasks of their job that are also first on their machine
+        int readyEnd = ready;
+        for(int m = 0 ; m < numMachines ; m++) {
+            if(nextFreeSlot[m] > 0) {
+                int job = getJobOfMachine(m, 0);
+                if(job != -1 && instance.machine(job, 0) == m)
+                    scratch[readyEnd++] = job * numTasks;
             }
         }
-        // we exited the loop : all tasks have been scheduled successfully
-        return Optional.of(schedule);
+
+        int makespan = 0;
+        int next = ready;
+        while(next < readyEnd) {
+            // next task in the queue, lets call it (job, task)
+            int op = scratch[next++];
+            int job = op / numTasks;
+            int task = op % numTasks;
+            int machine = instance.machine(job, task);
+
+            // compute the earliest start time (est) of the task
+            int est = Math.max(scratch[jobFree + job], scratch[machineFree + machine]);
+            int end = est + instance.duration(job, task);
+            if(target != null) {
+                target.times[job][task] = est;
+                // remember which predecessor delays the task, the one on the job having priority
+                if(est == 0)
+                    criticalPredecessor[op] = -1;
+                else if(task > 0 && scratch[jobFree + job] == est)
+                    criticalPredecessor[op] = op - 1;
+                else
+                    criticalPredecessor[op] = scratch[machineLast + machine];
+            }
+            makespan = Math.max(makespan, end);
+
+            // mark the task as scheduled
+            scratch[job]++;
+            scratch[machineNext + machine]++;
+            scratch[jobFree + job] = end;
+            scratch[machineFree + machine] = end;
+            scratch[machineLast + machine] = op;
+
+            // the next task of the job is ready if it is also the next one on its machine
+            if(task + 1 < numTasks) {
+                int nextMachine = instance.machine(job, task + 1);
+                if(positionOfTask[op + 1] == scratch[machineNext + nextMachine])
+                    scratch[readyEnd++] = op + 1;
+            }
+            // the next task of the machine is ready if it is also the next one on its job
+            if(scratch[machineNext + machine] < nextFreeSlot[machine]) {
+                int nextJob = getJobOfMachine(machine, scratch[machineNext + machine]);
+                // an empty position blocks the machine
+                if(nextJob != -1) {
+                    int nextTask = scratch[nextJob];
+                    if(nextTask < numTasks && instance.machine(nextJob, nextTask) == machine)
+                        scratch[readyEnd++] = nextJob * numTasks + nextTask;
+                }
+            }
+        }
+
+        if(next - ready < numJobs * numTasks) {
+            // some tasks never became schedulable: there is a cyclic dependency (or a task missing
+            // from the resource order, or an empty position) and there is no solution for this resource ordering
+            return -1;
+        }
+        if(target != null)
+            target.criticalPredecessor = criticalPredecessor;
+        return makespan;
     }
 
     /** Creates an exact copy of this resource order.
@@ -186,9 +384,9 @@ public final class ResourceOrder extends Encoding {
         for(int m=0; m < instance.numMachines; m++)
         {
             s.append("Machine ").append(m).append(" : ");
-            for(int j=0; j<instance.numJobs; j++)
+            for(int j=0; j<nextFreeSlot[m]; j++)
             {
-                s.append(tasksByMachine[m][j]).append(" ; ");
+                s.append(getJobOfMachine(m, j) == -1 ? null : getTaskOfMachine(m, j)).append(" ; ");
             }
             s.append("\n");
         }
@@ -201,13 +399,11 @@ public final class ResourceOrder extends Encoding {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         ResourceOrder that = (ResourceOrder) o;
-        return Arrays.deepEquals(tasksByMachine, that.tasksByMachine) && Arrays.equals(nextFreeSlot, that.nextFreeSlot);
+        return Arrays.equals(jobsByMachine, that.jobsByMachine) && Arrays.equals(nextFreeSlot, that.nextFreeSlot);
     }
 
     @Override
     public int hashCode() {
-        int result = Arrays.hashCode(tasksByMachine);
-        result = 31 * result + Arrays.hashCode(nextFreeSlot);
-        return result;
+        return Long.hashCode(zobrist);
     }
 }
\ No newline at end of file
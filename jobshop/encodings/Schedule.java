@@ -16,6 +16,11 @@ public class Schedule extends Encoding {
     // times[j][i] is the start time of task (j,i) : i^th task of the j^th job
     final int[][] times;
 
+    // for each task (job * numTasks + task) starting after 0, the task that ends exactly when it starts
+    // (its predecessor on the job if possible, on the machine otherwise), -1 for tasks starting at 0.
+    // Filled by the decoder of ResourceOrder, computed lazily otherwise, and reset whenever a start time changes.
+    int[] criticalPredecessor;
+
     /** Creates a new schedule for the given instance where all start times are uninitialized. */
     public Schedule(Instance instance) {
         super(instance);
@@ -26,6 +31,17 @@ public class Schedule extends Encoding {
     }
 
 
+    /** Creates an exact copy of this schedule. */
+    public Schedule copy() {
+        Schedule copy = new Schedule(instance);
+        for(int j = 0; j < instance.numJobs ; j++) {
+            System.arraycopy(times[j], 0, copy.times[j], 0, instance.numTasks);
+        }
+        // ResourceOrder.decodeInto() reuses the array of its target: each schedule owns its own
+        copy.criticalPredecessor = criticalPredecessor == null ? null : criticalPredecessor.clone();
+        return copy;
+    }
+
     /** Start time of the given task. */
     public int startTime(int job, int task) {
         return times[job][task];
@@ -49,6 +65,7 @@ public class Schedule extends Encoding {
     /** Sets the start time of the given task. */
     public void setStartTime(int job, int task, int startTime) {
         times[job][task] = startTime;
+        criticalPredecessor = null;
     }
 
     /** Returns true if this schedule is valid (no constraint is violated) */
@@ -64,18 +81,20 @@ public class Schedule extends Encoding {
             }
         }
 
+        // on each machine, tasks sorted by start time (then end time) must not overlap with the next one
+        long[] tasksOnMachine = new long[instance.numJobs];
         for (int machine = 0; machine < instance.numMachines ; machine++) {
-            for(int j1 = 0; j1< instance.numJobs ; j1++) {
-                int t1 = instance.task_with_machine(j1, machine);
-                for(int j2 = j1+1; j2< instance.numJobs ; j2++) {
-                    int t2 = instance.task_with_machine(j2, machine);
-
-                    boolean t1_first = endTime(j1, t1) <= startTime(j2, t2);
-                    boolean t2_first = endTime(j2, t2) <= startTime(j1, t1);
-
-                    if(!t1_first && !t2_first)
-                        return false;
-                }
+            // tasks of this machine, encoded as (startTime << 32 | endTime) and sorted
+            for(int j = 0; j< instance.numJobs ; j++) {
+                int t = instance.task_with_machine(j, machine);
+                tasksOnMachine[j] = ((long) startTime(j, t) << 32) | endTime(j, t);
+            }
+            Arrays.sort(tasksOnMachine);
+            for(int i = 1; i< instance.numJobs ; i++) {
+                int previousEnd = (int) tasksOnMachine[i-1];
+                int start = (int) (tasksOnMachine[i] >>> 32);
+                if(previousEnd > start)
+                    return false;
             }
         }
 
@@ -113,51 +132,77 @@ public class Schedule extends Encoding {
      * @return A sequence of task along a critical path.
      */
     public List<Task> criticalPath() {
+        int[] ops = criticalPathOperations();
+        List<Task> path = new ArrayList<>(ops.length);
+        for(int op : ops) {
+            path.add(new Task(op / instance.numTasks, op % instance.numTasks));
+        }
+        assert isCriticalPath(path);
+        return path;
+    }
+
+    /** Computes a critical path of the schedule, without allocating any Task.
+     *
+     * @return The sequence of tasks along a critical path, each task being identified by the
+     *         integer <code>job * numTasks + task</code>.
+     */
+    public int[] criticalPathOperations() {
+        if(criticalPredecessor == null) {
+            criticalPredecessor = computeCriticalPredecessors();
+        }
+        int numTasks = instance.numTasks;
+
         // select task with greatest end time
-        Task ldd = IntStream.range(0, instance.numJobs)
-                .mapToObj(j -> new Task(j, instance.numTasks-1))
-                .max(Comparator.comparing(this::endTime))
-                .get();
-        assert endTime(ldd) == makespan();
-
-        // list that will contain the critical path.
-        // we construct it from the end, starting with the
-        // task that finishes last
-        LinkedList<Task> path = new LinkedList<>();
-        path.add(0,ldd);
-
-        // keep adding tasks to the path until the first task in the path
-        // starts a time 0
-        while(startTime(path.getFirst()) != 0) {
-            Task cur = path.getFirst();
-            int machine = instance.machine(cur.job, cur.task);
-
-            // will contain the task that was delaying the start
-            // of our current task
-            Optional<Task> latestPredecessor = Optional.empty();
-
-            if(cur.task > 0) {
-                // our current task has a predecessor on the job
-                Task predOnJob = new Task(cur.job, cur.task -1);
-
-                // if it was the delaying task, save it to predecessor
-                if(endTime(predOnJob) == startTime(cur))
-                    latestPredecessor = Optional.of(predOnJob);
+        int last = numTasks - 1;
+        for(int j = 1; j < instance.numJobs ; j++) {
+            if(endTime(j, numTasks-1) > endTime(last / numTasks, numTasks-1))
+                last = j * numTasks + numTasks - 1;
+        }
+        assert endTime(last / numTasks, last % numTasks) == makespan();
+
+        // follow the delaying predecessors back to a task starting at time 0,
+        // first to get the length of the path, then to fill it from the end
+        int length = 0;
+        for(int op = last ; op != -1 ; op = criticalPredecessor[op]) {
+            length++;
+        }
+        int[] path = new int[length];
+        for(int op = last ; op != -1 ; op = criticalPredecessor[op]) {
+            path[--length] = op;
+        }
+        return path;
+    }
+
+    /** For schedules that were not produced by a decoder, finds the delaying predecessor of each task
+     * by sorting the tasks of each machine by start time. */
+    private int[] computeCriticalPredecessors() {
+        int numTasks = instance.numTasks;
+        int[] preds = new int[instance.numJobs * numTasks];
+        Arrays.fill(preds, -1);
+        long[] tasksOnMachine = new long[instance.numJobs];
+        for(int machine = 0 ; machine < instance.numMachines ; machine++) {
+            // tasks of this machine, encoded as (startTime << 32 | job) and sorted by start time
+            for(int j = 0 ; j < instance.numJobs ; j++) {
+                tasksOnMachine[j] = ((long) startTime(j, instance.task_with_machine(j, machine)) << 32) | j;
             }
-            if(latestPredecessor.isEmpty()) {
-                // no latest predecessor found yet, look among tasks executing on the same machine
-                latestPredecessor = IntStream.range(0, instance.numJobs)
-                        .mapToObj(j -> new Task(j, instance.task_with_machine(j, machine)))
-                        .filter(t -> endTime(t) == startTime(cur))
-                        .findFirst();
+            Arrays.sort(tasksOnMachine);
+            for(int i = 1 ; i < instance.numJobs ; i++) {
+                int prevJob = (int) tasksOnMachine[i-1];
+                int job = (int) tasksOnMachine[i];
+                int prevTask = instance.task_with_machine(prevJob, machine);
+                int task = instance.task_with_machine(job, machine);
+                if(startTime(job, task) != 0 && endTime(prevJob, prevTask) == startTime(job, task))
+                    preds[job * numTasks + task] = prevJob * numTasks + prevTask;
             }
-            // at this point we should have identified a latest predecessor, either on the job or on the machine
-            assert latestPredecessor.isPresent() && endTime(latestPredecessor.get()) == startTime(cur);
-            // insert predecessor at the beginning of the path
-            path.add(0, latestPredecessor.get());
         }
-        assert isCriticalPath(path);
-        return path;
+        // the predecessor on the job has priority over the one on the machine
+        for(int j = 0 ; j < instance.numJobs ; j++) {
+            for(int t = 1 ; t < numTasks ; t++) {
+                if(startTime(j, t) != 0 && endTime(j, t-1) == startTime(j, t))
+                    preds[j * numTasks + t] = j * numTasks + t - 1;
+            }
+        }
+        return preds;
     }
 
     @Override
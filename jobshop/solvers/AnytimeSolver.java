@@ -0,0 +1,129 @@
+package jobshop.solvers;
+
+import jobshop.Instance;
+import jobshop.encodings.Schedule;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+
+/** Runs a solver in the background and gives access to its solutions while it is running.
+ *
+ * Each call to <code>start()</code> returns a Run with:
+ * <ul>
+ *     <li>a CompletableFuture completed with the final result of the solver,</li>
+ *     <li>a Flow.Publisher of each new best solution, in order of discovery,</li>
+ *     <li>a <code>stop()</code> method that asks the solver to return its best solution early.</li>
+ * </ul>
+ * Cancelling the future also stops the solver. Solvers that do not watch stop requests (e.g. the greedy ones)
+ * run to completion, but they are short anyway.
+ */
+public class AnytimeSolver {
+
+    /** Number of solutions buffered for each subscriber. When a subscriber is slower than the solver, the
+     * new solutions that do not fit are dropped: the last one is always available through the future. */
+    static final int BUFFER_CAPACITY = 16;
+
+    final Solver solver;
+    final Executor executor;
+
+    /** Creates an anytime solver running each search on a new thread.
+     *
+     * @param solver Solver to run. A solver keeping state between calls should not be started twice at the same time.
+     */
+    public AnytimeSolver(Solver solver) {
+        this(solver, task -> {
+            Thread thread = new Thread(task, "anytime-solver");
+            thread.setDaemon(true);
+            thread.start();
+        });
+    }
+
+    /** Creates an anytime solver.
+     *
+     * @param solver Solver to run.
+     * @param executor Executor on which searches run. A search occupies its thread until it returns.
+     */
+    public AnytimeSolver(Solver solver, Executor executor) {
+        this.solver = solver;
+        this.executor = executor;
+    }
+
+    /** Starts solving the instance in the background.
+     *
+     * @param instance Jobshop instance that should be solved.
+     * @param deadline Absolute time at which the solver should have returned a solution. It returns earlier if it
+     *                 finds a solution whose makespan is the lower bound of the instance.
+     * @return A handle on the running search.
+     */
+    public Run start(Instance instance, long deadline) {
+        return start(instance, SearchBudget.until(deadline).withLowerBound(instance));
+    }
+
+    /** Starts solving the instance in the background.
+     *
+     * @param instance Jobshop instance that should be solved.
+     * @param budget Limits on the search.
+     * @return A handle on the running search.
+     */
+    public Run start(Instance instance, SearchBudget budget) {
+        Run run = new Run();
+        executor.execute(() -> run.execute(solver, instance, budget));
+        return run;
+    }
+
+    /** A search running in the background. */
+    public static final class Run {
+
+        final SearchStatistics statistics = new SearchStatistics();
+        final SubmissionPublisher<Schedule> incumbents = new SubmissionPublisher<>(
+                ForkJoinPool.commonPool(), BUFFER_CAPACITY);
+        final CompletableFuture<Optional<Schedule>> result = new CompletableFuture<>();
+
+        Run() {
+            statistics.setImprovementListener(schedule -> incumbents.offer(schedule, null));
+            // cancelling the future is a request to stop, the solver returns as soon as it notices it
+            result.whenComplete((schedule, error) -> {
+                if(result.isCancelled())
+                    statistics.requestStop();
+            });
+        }
+
+        void execute(Solver solver, Instance instance, SearchBudget budget) {
+            try {
+                statistics.start(budget.deadline);
+                Optional<Schedule> schedule = solver.solve(instance, budget, statistics);
+                statistics.stop();
+                incumbents.close();
+                result.complete(schedule);
+            } catch (Throwable e) {
+                incumbents.closeExceptionally(e);
+                result.completeExceptionally(e);
+            }
+        }
+
+        /** Final result of the solver, completed when it returns. */
+        public CompletableFuture<Optional<Schedule>> result() {
+            return result;
+        }
+
+        /** Publishes each new best solution found by the solver. Completed when the solver returns. */
+        public Flow.Publisher<Schedule> incumbents() {
+            return incumbents;
+        }
+
+        /** Asks the solver to return its best solution as soon as possible. The result is still delivered
+         * through <code>result()</code>. */
+        public void stop() {
+            statistics.requestStop();
+        }
+
+        /** Work done by the solver. Only meaningful once the result is available. */
+        public SearchStatistics statistics() {
+            return statistics;
+        }
+    }
+}
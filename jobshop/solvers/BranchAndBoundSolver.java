@@ -0,0 +1,365 @@
+package jobshop.solvers;
+
+import jobshop.Instance;
+import jobshop.LowerBounds;
+import jobshop.encodings.Schedule;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Exact solver: branch and bound over the active schedules (Giffler and Thompson, 1960).
+ *
+ * A node is a partial schedule. Its children schedule next one of the tasks in conflict on the machine of the
+ * task that would complete first, every optimal schedule being reachable this way. Each node is bounded by the
+ * Jackson preemptive schedule of the unscheduled tasks of each machine (see LowerBounds), with heads
+ * propagated along the jobs from the partial schedule and tails given by the remaining work of the jobs.
+ * Children that would make some other task of the machine end too late are discarded without being bounded
+ * (pairwise immediate selection).
+ *
+ * The upper bound is seeded by another solver, then shared by all threads through an Incumbent. The tree is
+ * explored depth-first on a work-stealing ForkJoin pool: a node forks its children only while the pool lacks
+ * work. If the whole tree is explored before the deadline, the result is optimal and the statistics say so.
+ */
+public class BranchAndBoundSolver implements Solver {
+
+    /** Number of nodes explored by a thread between two readings of the clock. */
+    static final int CLOCK_CHECK_INTERVAL = 1024;
+
+    /** A node forks its children only if the current thread has fewer tasks waiting to be stolen. */
+    static final int SURPLUS_THRESHOLD = 2;
+
+    /** Maximal number of iterations of the seed solver. */
+    static final long SEED_ITERATIONS = 1000;
+
+    /** Solver providing the initial upper bound. */
+    final Solver seedSolver;
+    /** Pool on which the tree is explored, null to explore it in the calling thread. */
+    final ForkJoinPool pool;
+
+    /** Creates a branch and bound solver.
+     *
+     * @param seedSolver Solver providing the initial upper bound. It is given the deadline of the search and at
+     *                   most SEED_ITERATIONS iterations.
+     * @param pool Pool on which the tree is explored, null to explore it in the calling thread.
+     */
+    public BranchAndBoundSolver(Solver seedSolver, ForkJoinPool pool) {
+        this.seedSolver = seedSolver;
+        this.pool = pool;
+    }
+
+    @Override
+    public Optional<Schedule> solve(Instance instance, long deadline) {
+        return solve(instance, SearchBudget.until(deadline).withLowerBound(instance), new SearchStatistics());
+    }
+
+    @Override
+    public Optional<Schedule> solve(Instance instance, SearchBudget budget, SearchStatistics statistics) {
+        Search search = new Search(instance, budget, statistics);
+        SearchBudget seedBudget = SearchBudget.until(budget.deadline).withMaxIterations(SEED_ITERATIONS);
+        seedSolver.solve(instance, seedBudget, new SearchStatistics()).ifPresent(search.incumbent::offer);
+        search.incumbent.get().ifPresent(search::improved);
+
+        NodeTask root = new NodeTask(search, new State(instance));
+        if(pool == null)
+            root.compute();
+        else
+            pool.invoke(root);
+
+        statistics.iterations += search.nodes.sum();
+        statistics.neighborsEvaluated += search.bounds.sum();
+        // the search may also have stopped on reaching the lower bound of the instance
+        statistics.provenOptimal = search.incumbent.get().isPresent()
+                && (!search.aborted || search.incumbent.makespan() <= LowerBounds.of(instance));
+        return search.incumbent.get();
+    }
+
+    /** Data shared by all nodes of a search. */
+    static final class Search {
+        final Instance instance;
+        final SearchBudget budget;
+        final SearchStatistics statistics;
+        final Incumbent incumbent = new Incumbent();
+        final int numOps;
+        // duration, machine and tail (remaining work of the job after it) of each task (job * numTasks + task)
+        final int[] duration;
+        final int[] machine;
+        final int[] tail;
+        // working arrays of each thread
+        final ThreadLocal<Workspace> workspaces;
+        // set when the budget is exhausted: all threads return as soon as they see it
+        volatile boolean aborted;
+        final LongAdder nodes = new LongAdder();
+        final LongAdder bounds = new LongAdder();
+
+        Search(Instance instance, SearchBudget budget, SearchStatistics statistics) {
+            this.instance = instance;
+            this.budget = budget;
+            this.statistics = statistics;
+            this.numOps = instance.numJobs * instance.numTasks;
+            this.duration = new int[numOps];
+            this.machine = new int[numOps];
+            this.tail = new int[numOps];
+            for(int job = 0 ; job < instance.numJobs ; job++) {
+                int remaining = 0;
+                for(int task = instance.numTasks - 1 ; task >= 0 ; task--) {
+                    int op = job * instance.numTasks + task;
+                    duration[op] = instance.duration(job, task);
+                    machine[op] = instance.machine(job, task);
+                    tail[op] = remaining;
+                    remaining += duration[op];
+                }
+            }
+            this.workspaces = ThreadLocal.withInitial(() -> new Workspace(instance));
+        }
+
+        /** Records a new incumbent in the statistics. Called by any thread, hence the lock. */
+        synchronized void improved(Schedule schedule) {
+            int makespan = schedule.makespan();
+            if(statistics.bestMakespan < 0 || makespan < statistics.bestMakespan)
+                statistics.improved(makespan, schedule);
+        }
+    }
+
+    /** A partial schedule, built by scheduling the next task of a job at a time. */
+    static final class State {
+        // number of tasks scheduled for each job
+        final int[] nextTask;
+        // time at which each job and each machine is free
+        final int[] jobReady;
+        final int[] machineReady;
+        // start time of each scheduled task
+        final int[] start;
+        int numScheduled;
+
+        State(Instance instance) {
+            this.nextTask = new int[instance.numJobs];
+            this.jobReady = new int[instance.numJobs];
+            this.machineReady = new int[instance.numMachines];
+            this.start = new int[instance.numJobs * instance.numTasks];
+        }
+
+        State(State original) {
+            this.nextTask = original.nextTask.clone();
+            this.jobReady = original.jobReady.clone();
+            this.machineReady = original.machineReady.clone();
+            this.start = original.start.clone();
+            this.numScheduled = original.numScheduled;
+        }
+    }
+
+    /** Working arrays of a thread. */
+    static final class Workspace {
+        // number of nodes explored by the thread, to read the clock periodically
+        long nodes;
+        // head of each unscheduled task in the current node
+        final int[] head;
+        // release date, remaining processing time and tail of the tasks of one machine
+        final int[] release;
+        final int[] remaining;
+        final int[] tail;
+        // heaps of the Jackson preemptive schedule
+        final int[] heaps;
+
+        Workspace(Instance instance) {
+            this.head = new int[instance.numJobs * instance.numTasks];
+            this.release = new int[instance.numJobs];
+            this.remaining = new int[instance.numJobs];
+            this.tail = new int[instance.numJobs];
+            this.heaps = new int[2 * instance.numJobs];
+        }
+    }
+
+    /** Exploration of the subtree of a node. */
+    @SuppressWarnings("serial") // tasks are never serialized
+    static final class NodeTask extends RecursiveAction {
+        final Search search;
+        final State state;
+
+        NodeTask(Search search, State state) {
+            this.search = search;
+            this.state = state;
+        }
+
+        @Override
+        protected void compute() {
+            explore(search, state);
+        }
+    }
+
+    /** Explores the subtree of the node, forking children when the pool lacks work. The state is restored
+     * before returning. */
+    static void explore(Search search, State state) {
+        if(search.aborted)
+            return;
+        search.nodes.increment();
+        Workspace workspace = search.workspaces.get();
+        if(++workspace.nodes % CLOCK_CHECK_INTERVAL == 0
+                && (search.budget.timeIsUp() || search.statistics.stopRequested())) {
+            search.aborted = true;
+            return;
+        }
+        Instance instance = search.instance;
+        int numTasks = instance.numTasks;
+
+        if(state.numScheduled == search.numOps) {
+            Schedule schedule = new Schedule(instance);
+            for(int job = 0 ; job < instance.numJobs ; job++)
+                for(int task = 0 ; task < numTasks ; task++)
+                    schedule.setStartTime(job, task, state.start[job * numTasks + task]);
+            if(search.incumbent.offer(schedule))
+                search.improved(schedule);
+            if(search.incumbent.makespan() <= search.budget.targetMakespan)
+                search.aborted = true;
+            return;
+        }
+
+        if(lowerBound(search, state, workspace) >= search.incumbent.makespan())
+            return;
+
+        // Giffler-Thompson: the machine of the task that can complete first, and its earliest completion
+        int bestMachine = -1;
+        int earliestCompletion = Integer.MAX_VALUE;
+        for(int job = 0 ; job < instance.numJobs ; job++) {
+            if(state.nextTask[job] == numTasks)
+                continue;
+            int op = job * numTasks + state.nextTask[job];
+            int completion = Math.max(state.jobReady[job], state.machineReady[search.machine[op]]) + search.duration[op];
+            if(completion < earliestCompletion) {
+                earliestCompletion = completion;
+                bestMachine = search.machine[op];
+            }
+        }
+
+        // tasks of this machine that could start before that time, sorted by start time then by decreasing tail
+        int[] conflict = new int[instance.numJobs];
+        int numConflicts = 0;
+        for(int job = 0 ; job < instance.numJobs ; job++) {
+            if(state.nextTask[job] == numTasks)
+                continue;
+            int op = job * numTasks + state.nextTask[job];
+            if(search.machine[op] == bestMachine
+                    && Math.max(state.jobReady[job], state.machineReady[bestMachine]) < earliestCompletion) {
+                int i = numConflicts++;
+                while(i > 0 && before(search, state, op, conflict[i-1])) {
+                    conflict[i] = conflict[i-1];
+                    i--;
+                }
+                conflict[i] = op;
+            }
+        }
+
+        List<NodeTask> forked = null;
+        for(int c = 0 ; c < numConflicts && !search.aborted ; c++) {
+            int op = conflict[c];
+            int job = op / numTasks;
+            int start = Math.max(state.jobReady[job], state.machineReady[bestMachine]);
+            int end = start + search.duration[op];
+            if(!selectable(search, state, op, bestMachine, end))
+                continue;
+
+            if(RecursiveAction.inForkJoinPool()
+                    && RecursiveAction.getSurplusQueuedTaskCount() < SURPLUS_THRESHOLD) {
+                // give the child to an idle thread
+                State child = new State(state);
+                schedule(child, job, op, start, end, bestMachine);
+                NodeTask task = new NodeTask(search, child);
+                task.fork();
+                if(forked == null)
+                    forked = new ArrayList<>();
+                forked.add(task);
+            } else {
+                // explore the child in place, then restore the state
+                int previousJobReady = state.jobReady[job];
+                int previousMachineReady = state.machineReady[bestMachine];
+                schedule(state, job, op, start, end, bestMachine);
+                explore(search, state);
+                state.nextTask[job]--;
+                state.numScheduled--;
+                state.jobReady[job] = previousJobReady;
+                state.machineReady[bestMachine] = previousMachineReady;
+            }
+        }
+        if(forked != null)
+            for(NodeTask task : forked)
+                task.join();
+    }
+
+    /** Order in which the children of a node are explored: by start time, then by decreasing tail. */
+    private static boolean before(Search search, State state, int op1, int op2) {
+        int job1 = op1 / search.instance.numTasks;
+        int job2 = op2 / search.instance.numTasks;
+        int start1 = state.jobReady[job1];
+        int start2 = state.jobReady[job2];
+        if(start1 != start2)
+            return start1 < start2;
+        return search.tail[op1] + search.duration[op1] > search.tail[op2] + search.duration[op2];
+    }
+
+    /** Schedules the task op of the job at the given time. */
+    private static void schedule(State state, int job, int op, int start, int end, int machine) {
+        state.start[op] = start;
+        state.nextTask[job]++;
+        state.numScheduled++;
+        state.jobReady[job] = end;
+        state.machineReady[machine] = end;
+    }
+
+    /** Immediate selection: scheduling op first on its machine (ending at the given time) is only useful if
+     * every other unscheduled task of the machine can still be processed after it and followed by the rest of
+     * its job before the makespan of the incumbent. */
+    private static boolean selectable(Search search, State state, int op, int machine, int end) {
+        int upperBound = search.incumbent.makespan();
+        Instance instance = search.instance;
+        for(int job = 0 ; job < instance.numJobs ; job++) {
+            int task = instance.task_with_machine(job, machine);
+            int other = job * instance.numTasks + task;
+            if(other == op || task < state.nextTask[job])
+                continue;
+            if(end + search.duration[other] + search.tail[other] >= upperBound)
+                return false;
+        }
+        return true;
+    }
+
+    /** Lower bound of the makespan of all complete schedules of the subtree of the node: the largest value of
+     * the Jackson preemptive schedule of the unscheduled tasks of any machine. */
+    static int lowerBound(Search search, State state, Workspace workspace) {
+        search.bounds.increment();
+        Instance instance = search.instance;
+        int numTasks = instance.numTasks;
+        int[] head = workspace.head;
+
+        // heads of the unscheduled tasks, propagated along their jobs
+        int bound = 0;
+        for(int job = 0 ; job < instance.numJobs ; job++) {
+            int time = state.jobReady[job];
+            bound = Math.max(bound, time);
+            for(int task = state.nextTask[job] ; task < numTasks ; task++) {
+                int op = job * numTasks + task;
+                time = Math.max(time, state.machineReady[search.machine[op]]);
+                head[op] = time;
+                time += search.duration[op];
+            }
+        }
+
+        for(int machine = 0 ; machine < instance.numMachines ; machine++) {
+            int k = 0;
+            for(int job = 0 ; job < instance.numJobs ; job++) {
+                int task = instance.task_with_machine(job, machine);
+                if(task < state.nextTask[job])
+                    continue;
+                int op = job * numTasks + task;
+                workspace.release[k] = head[op];
+                workspace.remaining[k] = search.duration[op];
+                workspace.tail[k] = search.tail[op];
+                k++;
+            }
+            bound = Math.max(bound, LowerBounds.jacksonPreemptiveSchedule(workspace.release, workspace.remaining, workspace.tail, k, workspace.heaps));
+        }
+        return bound;
+    }
+}
@@ -0,0 +1,56 @@
+package jobshop.solvers;
+
+import jobshop.Instance;
+import jobshop.LruCache;
+import jobshop.encodings.Schedule;
+
+import java.util.Optional;
+
+/** Memoises the schedules of a deterministic solver, typically the greedy solver that seeds a local search.
+ *
+ * Results are shared by all cached solvers of the JVM, keyed by the instance (its name and the fingerprint of its
+ * content, so that different instances with the same name never share a schedule) and the key of the solver.
+ * This lets, for instance, descente_spt and tabou reuse the same SPT schedule instead of each rebuilding it.
+ */
+public class CachedSolver implements Solver {
+
+    /** Maximum number of schedules kept, the least recently used ones being evicted first. */
+    static final int CAPACITY = 256;
+
+    /** Schedules already computed, keyed by "instance name/instance fingerprint/solver key". */
+    static final LruCache<String, Schedule> schedules = new LruCache<>(CAPACITY);
+
+    final Solver solver;
+    final String key;
+
+    /** Creates a new cached solver.
+     *
+     * @param solver Solver whose results are memoised. It must return the same schedule each time it is
+     *               called on the same instance, regardless of the deadline.
+     * @param key Name identifying the solver and its configuration in the cache.
+     */
+    public CachedSolver(Solver solver, String key) {
+        this.solver = solver;
+        this.key = key;
+    }
+
+    @Override
+    public Optional<Schedule> solve(Instance instance, long deadline) {
+        String cacheKey = instance.name + "/" + Long.toHexString(instance.fingerprint()) + "/" + key;
+        Schedule cached = schedules.get(cacheKey);
+        if(cached == null) {
+            Optional<Schedule> result = solver.solve(instance, deadline);
+            if(result.isEmpty())
+                return result;
+            cached = result.get();
+            schedules.put(cacheKey, cached);
+        }
+        // callers may modify the schedule they get, never hand out the cached one
+        return Optional.of(cached.copy());
+    }
+
+    /** Greedy solver with the given priority whose schedules are cached. */
+    public static Solver greedy(GreedySolver.Priority priority) {
+        return new CachedSolver(new GreedySolver(priority), "greedy_" + priority);
+    }
+}
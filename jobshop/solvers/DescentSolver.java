@@ -3,11 +3,10 @@ package jobshop.solvers;
 import jobshop.Instance;
 import jobshop.encodings.ResourceOrder;
 import jobshop.encodings.Schedule;
+import jobshop.solvers.neighborhood.Move;
+import jobshop.solvers.neighborhood.MoveEvaluator;
 import jobshop.solvers.neighborhood.Neighborhood;
-import jobshop.solvers.neighborhood.Nowicki;
 
-import java.time.LocalTime;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -29,44 +28,57 @@ public class DescentSolver implements Solver {
 
     @Override
     public Optional<Schedule> solve(Instance instance, long deadline) {
+        return solve(instance, SearchBudget.until(deadline).withLowerBound(instance), new SearchStatistics());
+    }
 
-        Optional<Schedule> return_schedule = this.baseSolver.solve(instance,deadline);
-        Nowicki now = new Nowicki();
-
-        ResourceOrder RO = new ResourceOrder(return_schedule.get());
+    @Override
+    public Optional<Schedule> solve(Instance instance, SearchBudget budget, SearchStatistics statistics) {
 
-        List<ResourceOrder> list_RO ;
+        Optional<Schedule> return_schedule = this.baseSolver.solve(instance, budget.deadline);
 
-        ResourceOrder best_RO = RO;
-        int best_makespan = best_RO.toSchedule().get().makespan();
+        ResourceOrder best_RO = new ResourceOrder(return_schedule.get());
 
+        // heads and tails of the current solution, used to estimate the makespan of its neighbors
+        MoveEvaluator evaluator = new MoveEvaluator(instance);
+        evaluator.load(best_RO);
+        int best_makespan = evaluator.makespan();
+        statistics.decodes++;
+        statistics.improved(best_makespan, best_RO);
 
-        long exec_time = 0;
-        boolean recherche = true;
-        ResourceOrder previousRO;
+        // each tried neighbor is built in this buffer, which is exchanged with best_RO when it is better
+        ResourceOrder candidate = best_RO.copy();
 
-        while((exec_time < deadline)&&(recherche)){
-            previousRO = best_RO;
-            list_RO = now.generateNeighbors(best_RO);
-            for(ResourceOrder RO_Iterator : list_RO){
-                //verifier si RO est valide
-                // verifier RO_Iterator.toSchedule().ispresent()/empty() check doc optional
+        while(!budget.exhausted(statistics)){
+            List<? extends Move> swaps = neighborhood.moves(best_RO, evaluator);
+            statistics.neighborsGenerated += swaps.size();
+            statistics.neighborsEvaluated += swaps.size();
 
-                if((RO_Iterator.toSchedule().isPresent())&&(RO_Iterator.toSchedule().get().isValid())){
-                    int makespan_iterator = RO_Iterator.toSchedule().get().makespan();
-                    if(makespan_iterator < best_makespan){
-                        best_makespan = makespan_iterator;
-                        best_RO = RO_Iterator;
-                    }
+            // neighbors are decoded from the best estimated makespan until one of them improves: an estimate
+            // is only approximate, so the search stops only when no neighbor is better
+            boolean improved = false;
+            for(int index : evaluator.movesByEstimate(swaps)) {
+                if(budget.exhausted(statistics)) {
+                    break;
+                }
+                candidate.copyFrom(best_RO);
+                swaps.get(index).applyTo(candidate);
+                statistics.decodes++;
+                if(evaluator.load(candidate) && evaluator.makespan() < best_makespan) {
+                    improved = true;
+                    break;
                 }
-
-
             }
-
-            if(previousRO == best_RO){
-                recherche = false;
+            if(!improved){
+                // local minimum (the evaluator no longer holds best_RO)
+                break;
             }
-            exec_time = System.currentTimeMillis();
+            // the heads and tails of the improving neighbor are kept for the next iteration
+            best_makespan = evaluator.makespan();
+            ResourceOrder previous = best_RO;
+            best_RO = candidate;
+            candidate = previous;
+            statistics.iterations++;
+            statistics.improved(best_makespan, best_RO);
         }
 
         return best_RO.toSchedule();
@@ -0,0 +1,355 @@
+package jobshop.solvers;
+
+import jobshop.Instance;
+import jobshop.encodings.JobNumbers;
+import jobshop.encodings.ResourceOrder;
+import jobshop.encodings.Schedule;
+import jobshop.solvers.neighborhood.MoveEvaluator;
+import jobshop.solvers.neighborhood.Nowicki;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/** Genetic algorithm on the JobNumbers encoding.
+ *
+ * Each generation, offspring are created by precedence preserving crossover (POX, also known as JOX in the
+ * operation-based representation) of two parents chosen by binary tournament, followed by a random mutation.
+ * The best individuals of the previous generation are kept (elitism). Offspring are then evaluated in parallel,
+ * each worker thread decoding into its own buffers. Optionally, some offspring are improved by a descent in the
+ * Nowicki neighborhood before evaluation, and replaced by the result (Lamarckian polishing).
+ *
+ * All random choices are made by the calling thread, so that a run limited by a number of generations
+ * does not depend on the number of threads.
+ */
+public class GeneticSolver implements Solver {
+
+    /** Number of individuals in each generation. */
+    final int populationSize;
+    /** Number of best individuals copied unchanged to the next generation. */
+    final int eliteSize;
+    /** Probability for an offspring to be created by crossover rather than copied from a parent. */
+    final double crossoverRate;
+    /** Probability for an offspring to be mutated. */
+    final double mutationRate;
+    /** Probability for an offspring to be polished by a descent. */
+    final double polishRate;
+    /** Solver providing an individual of the initial population, the others are random. */
+    final Solver baseSolver;
+    /** Pool on which the population is evaluated, null to evaluate it in the calling thread. */
+    final ForkJoinPool pool;
+    final long seed;
+
+    /** Below this number of individuals, the evaluation is not split any further. */
+    static final int SEQUENTIAL_THRESHOLD = 4;
+
+    /** Creates a genetic solver with the usual parameters, evaluating its population on the common pool.
+     *
+     * @param baseSolver A solver to provide one individual of the initial population.
+     * @param polishRate Probability for an offspring to be improved by a descent, 0 for a pure genetic algorithm.
+     */
+    public GeneticSolver(Solver baseSolver, double polishRate) {
+        this(baseSolver, 100, 2, 0.9, 0.3, polishRate, ForkJoinPool.commonPool(), 0);
+    }
+
+    /** Creates a genetic solver.
+     *
+     * @param baseSolver A solver to provide one individual of the initial population.
+     * @param populationSize Number of individuals in each generation.
+     * @param eliteSize Number of best individuals copied unchanged to the next generation.
+     * @param crossoverRate Probability for an offspring to be created by crossover.
+     * @param mutationRate Probability for an offspring to be mutated.
+     * @param polishRate Probability for an offspring to be improved by a descent.
+     * @param pool Pool on which the population is evaluated, null for a sequential evaluation.
+     * @param seed Seed of the random generator.
+     */
+    public GeneticSolver(Solver baseSolver, int populationSize, int eliteSize, double crossoverRate,
+                         double mutationRate, double polishRate, ForkJoinPool pool, long seed) {
+        this.baseSolver = baseSolver;
+        this.populationSize = populationSize;
+        this.eliteSize = eliteSize;
+        this.crossoverRate = crossoverRate;
+        this.mutationRate = mutationRate;
+        this.polishRate = polishRate;
+        this.pool = pool;
+        this.seed = seed;
+    }
+
+    @Override
+    public Optional<Schedule> solve(Instance instance, long deadline) {
+        return solve(instance, SearchBudget.until(deadline).withLowerBound(instance), new SearchStatistics());
+    }
+
+    @Override
+    public Optional<Schedule> solve(Instance instance, SearchBudget budget, SearchStatistics statistics) {
+        Random random = new Random(seed);
+        int length = instance.numJobs * instance.numTasks;
+        // each worker thread decodes and polishes in its own buffers
+        ThreadLocal<Workspace> workspaces = ThreadLocal.withInitial(() -> new Workspace(instance));
+
+        // initial population: the base solution and random sequences
+        Population population = new Population(populationSize, length);
+        Optional<Schedule> initial = baseSolver.solve(instance, budget.deadline);
+        int first = 0;
+        if(initial.isPresent()) {
+            System.arraycopy(JobNumbers.fromSchedule(initial.get()).jobs, 0, population.genes[0], 0, length);
+            first = 1;
+        }
+        for(int i = first ; i < populationSize ; i++) {
+            int[] genes = population.genes[i];
+            for(int k = 0 ; k < length ; k++)
+                genes[k] = k / instance.numTasks;
+            shuffle(genes, random);
+        }
+        evaluate(population, new boolean[populationSize], workspaces, statistics);
+
+        Population offspring = new Population(populationSize, length);
+        boolean[] polish = new boolean[populationSize];
+        boolean[] selectedJobs = new boolean[instance.numJobs];
+        int best = population.best();
+        int[] bestGenes = population.genes[best].clone();
+        statistics.improved(population.fitness[best], new JobNumbers(instance, bestGenes));
+
+        while(!budget.exhausted(statistics)) {
+            statistics.iterations++;
+            population.sort();
+
+            // the elite survives unchanged, it does not need to be evaluated again
+            for(int i = 0 ; i < eliteSize ; i++) {
+                System.arraycopy(population.genes[i], 0, offspring.genes[i], 0, length);
+                offspring.fitness[i] = population.fitness[i];
+            }
+            for(int i = eliteSize ; i < populationSize ; i++) {
+                int[] parent1 = population.genes[tournament(population, random)];
+                int[] parent2 = population.genes[tournament(population, random)];
+                int[] child = offspring.genes[i];
+                if(random.nextDouble() < crossoverRate)
+                    crossover(parent1, parent2, child, selectedJobs, random);
+                else
+                    System.arraycopy(parent1, 0, child, 0, length);
+                if(random.nextDouble() < mutationRate)
+                    mutate(child, random);
+                offspring.fitness[i] = -1;
+                polish[i] = random.nextDouble() < polishRate;
+            }
+            statistics.neighborsGenerated += populationSize - eliteSize;
+            evaluate(offspring, polish, workspaces, statistics);
+
+            Population previous = population;
+            population = offspring;
+            offspring = previous;
+
+            best = population.best();
+            if(population.fitness[best] < statistics.bestMakespan) {
+                System.arraycopy(population.genes[best], 0, bestGenes, 0, length);
+                statistics.improved(population.fitness[best], new JobNumbers(instance, bestGenes));
+            }
+        }
+
+        return new JobNumbers(instance, bestGenes).toSchedule();
+    }
+
+    /** Individuals of a generation and their makespan (-1 when not evaluated yet). */
+    static final class Population {
+        final int[][] genes;
+        final int[] fitness;
+        // number of evaluations made while polishing each individual
+        final long[] polishEvaluations;
+
+        Population(int size, int length) {
+            this.genes = new int[size][length];
+            this.fitness = new int[size];
+            this.polishEvaluations = new long[size];
+            Arrays.fill(fitness, -1);
+        }
+
+        /** Index of the individual with the smallest makespan. */
+        int best() {
+            int best = 0;
+            for(int i = 1 ; i < fitness.length ; i++)
+                if(fitness[i] < fitness[best])
+                    best = i;
+            return best;
+        }
+
+        /** Sorts the individuals by increasing makespan (insertion sort: the population is small). */
+        void sort() {
+            for(int i = 1 ; i < fitness.length ; i++) {
+                int[] g = genes[i];
+                int f = fitness[i];
+                int j = i - 1;
+                while(j >= 0 && fitness[j] > f) {
+                    genes[j+1] = genes[j];
+                    fitness[j+1] = fitness[j];
+                    j--;
+                }
+                genes[j+1] = g;
+                fitness[j+1] = f;
+            }
+        }
+    }
+
+    /** Buffers of a worker thread. */
+    static final class Workspace {
+        final JobNumbers encoding;
+        final int[] scratch;
+        final Schedule schedule;
+        final MoveEvaluator evaluator;
+
+        Workspace(Instance instance) {
+            this.encoding = new JobNumbers(instance);
+            this.encoding.nextToSet = instance.numJobs * instance.numTasks;
+            // large enough for decoding both encodings
+            this.scratch = new int[Math.max(JobNumbers.scratchSize(instance), ResourceOrder.scratchSize(instance))];
+            this.schedule = new Schedule(instance);
+            this.evaluator = new MoveEvaluator(instance);
+        }
+    }
+
+    /** Computes the makespan of all individuals that have not been evaluated yet, polishing the selected ones. */
+    void evaluate(Population population, boolean[] polish, ThreadLocal<Workspace> workspaces,
+                  SearchStatistics statistics) {
+        EvaluationTask task = new EvaluationTask(population, polish, workspaces, 0, populationSize);
+        if(pool == null)
+            task.compute();
+        else
+            pool.invoke(task);
+
+        // counters are only updated by the calling thread
+        for(int i = 0 ; i < populationSize ; i++) {
+            if(population.polishEvaluations[i] >= 0) {
+                statistics.neighborsEvaluated += 1 + population.polishEvaluations[i];
+                statistics.decodes++;
+                population.polishEvaluations[i] = -1;
+            }
+        }
+    }
+
+    /** Evaluation of a range of individuals, recursively split in halves on a ForkJoin pool. */
+    @SuppressWarnings("serial") // tasks are never serialized
+    static final class EvaluationTask extends RecursiveAction {
+        final Population population;
+        final boolean[] polish;
+        final ThreadLocal<Workspace> workspaces;
+        final int from;
+        final int to;
+
+        EvaluationTask(Population population, boolean[] polish, ThreadLocal<Workspace> workspaces, int from, int to) {
+            this.population = population;
+            this.polish = polish;
+            this.workspaces = workspaces;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if(to - from <= SEQUENTIAL_THRESHOLD) {
+                Workspace workspace = workspaces.get();
+                for(int i = from ; i < to ; i++) {
+                    if(population.fitness[i] >= 0) {
+                        population.polishEvaluations[i] = -1;
+                        continue;
+                    }
+                    int[] genes = population.genes[i];
+                    System.arraycopy(genes, 0, workspace.encoding.jobs, 0, genes.length);
+                    if(polish[i]) {
+                        population.polishEvaluations[i] = polish(workspace, genes);
+                        population.fitness[i] = workspace.encoding.makespan(workspace.scratch);
+                    } else {
+                        population.polishEvaluations[i] = 0;
+                        population.fitness[i] = workspace.encoding.makespan(workspace.scratch);
+                    }
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new EvaluationTask(population, polish, workspaces, from, middle),
+                    new EvaluationTask(population, polish, workspaces, middle, to));
+        }
+    }
+
+    /** Improves the individual in the workspace by a descent in the Nowicki neighborhood, and writes the
+     * sequence of the local minimum in both the workspace and genes.
+     *
+     * @return The number of neighbors evaluated.
+     */
+    static long polish(Workspace workspace, int[] genes) {
+        workspace.encoding.decodeInto(workspace.schedule, workspace.scratch);
+        ResourceOrder order = new ResourceOrder(workspace.schedule);
+        MoveEvaluator evaluator = workspace.evaluator;
+        evaluator.load(order);
+        Nowicki nowicki = new Nowicki();
+        long evaluations = 0;
+        // the selected neighbor is built in this buffer, which is exchanged with order when it is better
+        ResourceOrder next = order.copy();
+        while(true) {
+            List<Nowicki.Swap> swaps = nowicki.moves(order, evaluator);
+            int bestIndex = evaluator.bestMove(swaps);
+            evaluations += swaps.size();
+            if(bestIndex == -1)
+                break;
+            next.copyFrom(order);
+            swaps.get(bestIndex).applyTo(next);
+            int makespan = evaluator.makespan();
+            if(!evaluator.load(next) || evaluator.makespan() >= makespan)
+                break;
+            ResourceOrder previous = order;
+            order = next;
+            next = previous;
+        }
+        order.decodeInto(workspace.schedule, workspace.scratch);
+        System.arraycopy(JobNumbers.fromSchedule(workspace.schedule).jobs, 0, genes, 0, genes.length);
+        System.arraycopy(genes, 0, workspace.encoding.jobs, 0, genes.length);
+        return evaluations;
+    }
+
+    /** Precedence preserving crossover (POX): the tasks of a random subset of jobs keep their positions in
+     * parent1, the other positions are filled with the tasks of the other jobs in the order of parent2. */
+    static void crossover(int[] parent1, int[] parent2, int[] child, boolean[] selectedJobs, Random random) {
+        for(int job = 0 ; job < selectedJobs.length ; job++)
+            selectedJobs[job] = random.nextBoolean();
+        int next = 0;
+        for(int i = 0 ; i < child.length ; i++) {
+            if(selectedJobs[parent1[i]]) {
+                child[i] = parent1[i];
+            } else {
+                while(selectedJobs[parent2[next]])
+                    next++;
+                child[i] = parent2[next++];
+            }
+        }
+    }
+
+    /** Moves a random gene to a random position. */
+    static void mutate(int[] genes, Random random) {
+        int from = random.nextInt(genes.length);
+        int to = random.nextInt(genes.length);
+        int gene = genes[from];
+        if(from < to)
+            System.arraycopy(genes, from + 1, genes, from, to - from);
+        else
+            System.arraycopy(genes, to, genes, to + 1, from - to);
+        genes[to] = gene;
+    }
+
+    /** Index of the best of two random individuals. */
+    static int tournament(Population population, Random random) {
+        int a = random.nextInt(population.fitness.length);
+        int b = random.nextInt(population.fitness.length);
+        return population.fitness[a] <= population.fitness[b] ? a : b;
+    }
+
+    /** Fisher-Yates shuffle. */
+    static void shuffle(int[] genes, Random random) {
+        for(int i = genes.length - 1 ; i > 0 ; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = genes[i];
+            genes[i] = genes[j];
+            genes[j] = tmp;
+        }
+    }
+}
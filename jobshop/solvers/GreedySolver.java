@@ -3,15 +3,16 @@ package jobshop.solvers;
 import jobshop.Instance;
 import jobshop.encodings.ResourceOrder;
 import jobshop.encodings.Schedule;
-import jobshop.encodings.Task;
-
-import java.util.ArrayList;
-import java.util.HashMap;
-
 
 import java.util.Optional;
 
-/** An empty shell to implement a greedy solver. */
+/** Greedy solver: builds a schedule by repeatedly selecting, among the next task of each job, the one
+ * preferred by a priority rule.
+ *
+ * Candidates are kept in a binary heap (one entry per job) so that each selection takes O(log n).
+ * For EST rules, the earliest start time of a candidate can only grow when another task is scheduled: keys are
+ * refreshed lazily, when an outdated candidate reaches the top of the heap.
+ */
 public class GreedySolver implements Solver {
 
     /** All possible priorities for the greedy solver. */
@@ -27,188 +28,153 @@ public class GreedySolver implements Solver {
         this.priority = p;
     }
 
-    @Override
-    public Optional<Schedule> solve(Instance instance, long deadline) {
-        int nb_tache_per_job = instance.numTasks;
-        int nb_job_instance = instance.numJobs;
-        ResourceOrder newRorder = new ResourceOrder(instance);;
+    /** True if the priority first selects the tasks with the earliest start time. */
+    boolean isEST() {
+        switch (priority) {
+            case EST_SPT: case EST_LPT: case EST_SRPT: case EST_LRPT: return true;
+            default: return false;
+        }
+    }
 
-        ArrayList<Task> task_to_exec = new ArrayList<Task>();
+    /** Value to minimize for a task, given its duration and the remaining processing time of its job. */
+    long ruleKey(int duration, int remainingWork) {
+        switch (priority) {
+            case SPT: case EST_SPT: return duration;
+            case LPT: case EST_LPT: return -duration;
+            case SRPT: case EST_SRPT: return remainingWork;
+            case LRPT: case EST_LRPT: return -remainingWork;
+            default: throw new RuntimeException("Unknown priority: " + priority);
+        }
+    }
 
-        if(nb_tache_per_job > 0){
-            for(int job = 0 ;job < nb_job_instance;job++){
-                task_to_exec.add(new Task(job,0));
+    @Override
+    public Optional<Schedule> solve(Instance instance, long deadline) {
+        int numJobs = instance.numJobs;
+        int numTasks = instance.numTasks;
+        ResourceOrder order = new ResourceOrder(instance);
+        boolean est = isEST();
+
+        // remainingWork[job * (numTasks+1) + task]: total duration of the tasks of the job, from task to the end
+        int[] remainingWork = new int[numJobs * (numTasks + 1)];
+        for(int job = 0 ; job < numJobs ; job++) {
+            for(int task = numTasks - 1 ; task >= 0 ; task--) {
+                remainingWork[job * (numTasks + 1) + task] =
+                        remainingWork[job * (numTasks + 1) + task + 1] + instance.duration(job, task);
             }
         }
 
+        // next task to schedule for each job, and times at which each job and machine become available
+        int[] nextTask = new int[numJobs];
+        int[] jobAvailable = new int[numJobs];
+        int[] machineAvailable = new int[instance.numMachines];
+
+        // Ties are broken by order of insertion of the candidates (first inserted first), except for SPT that
+        // historically selected the last inserted one.
+        int insertions = 0;
+        JobHeap candidates = new JobHeap(numJobs);
+        for(int job = 0 ; numTasks > 0 && job < numJobs ; job++) {
+            candidates.push(job, 0, secondaryKey(instance, job, 0, remainingWork, insertions++));
+        }
 
+        while(!candidates.isEmpty()) {
+            int job = candidates.peek();
+            int task = nextTask[job];
+            int machine = instance.machine(job, task);
+            int start = Math.max(jobAvailable[job], machineAvailable[machine]);
 
-        //VAleur d'initialisation pour EST
+            if(est && start > candidates.primary[job]) {
+                // the candidate was delayed by a task scheduled since its insertion, update its position
+                candidates.updateTop(start);
+                continue;
+            }
+            candidates.pop();
 
-        ArrayList<Integer> dispo_machine = new ArrayList<Integer>();
-        ArrayList<Integer> dispo_job = new ArrayList<Integer>();
+            order.addTaskToMachine(machine, job, task);
+            jobAvailable[job] = start + instance.duration(job, task);
+            machineAvailable[machine] = start + instance.duration(job, task);
 
-        boolean same_value = true;
+            nextTask[job]++;
+            if(nextTask[job] < numTasks) {
+                int nextStart = est ? Math.max(jobAvailable[job], machineAvailable[instance.machine(job, nextTask[job])]) : 0;
+                candidates.push(job, nextStart, secondaryKey(instance, job, nextTask[job], remainingWork, insertions++));
+            }
+        }
 
+        return order.toSchedule();
+    }
 
-        for(int i =0;i<instance.numMachines;i++){
-            dispo_machine.add(i,0);
+    /** Key of a candidate task after its earliest start time: the priority rule, then the insertion order. */
+    long secondaryKey(Instance instance, int job, int task, int[] remainingWork, int insertion) {
+        long rule = ruleKey(instance.duration(job, task), remainingWork[job * (instance.numTasks + 1) + task]);
+        int tieBreak = priority == Priority.SPT ? Integer.MAX_VALUE - insertion : insertion;
+        return (rule << 32) | tieBreak;
+    }
 
+    /** Binary min-heap of job numbers, ordered by (primary, secondary) keys stored per job. */
+    static final class JobHeap {
+        final int[] heap;
+        final long[] primary;
+        final long[] secondary;
+        int size = 0;
+
+        JobHeap(int numJobs) {
+            heap = new int[numJobs];
+            primary = new long[numJobs];
+            secondary = new long[numJobs];
         }
 
-        for(int i =0;i<instance.numJobs;i++){
-            dispo_job.add(i,0);
+        boolean isEmpty() {
+            return size == 0;
         }
 
-        while(!task_to_exec.isEmpty()){
-            //task_to_exec.forEach(System.out::println);
-           // System.out.println("empty" + task_to_exec.isEmpty());
-            //System.out.println("size" + task_to_exec.size());
-            //System.out.println("-------------");
-            switch (this.priority){
-
-                case SPT:
-                    Task shortest_task = task_to_exec.get(0);
-                    for(Task task_iterator : task_to_exec){
-                      //  System.out.println("A cette itération la liste est de taille "+task_to_exec.size());
-                        if(instance.duration(task_iterator) <= instance.duration(shortest_task)){
-                            shortest_task = task_iterator;
-                        }
-                    }
-                    task_to_exec.remove(shortest_task);
-                   // System.out.println("On supprime la shortest task de la liste,  la liste est de taille "+task_to_exec.size()+" On retire la tâche "+shortest_task.toString());
-                    if((shortest_task.task + 1) < nb_tache_per_job){
-                        Task task_ajouter = new Task(shortest_task.job,shortest_task.task+1);
-                        task_to_exec.add(task_ajouter);
-                      //  System.out.println("On ajoute la new task la liste est de taille "+task_to_exec.size()+" On a ajouté la task "+task_ajouter.toString());
-                    }
-                    newRorder.addTaskToMachine(instance.machine(shortest_task),shortest_task);
-
-                    shortest_task = null;
-
-                    break;
-
-
-                case LRPT:
-                    int LR_process_duree = 0;
-                    Task  LRProcess = task_to_exec.get(0);
-                    for(int i = LRProcess.task;i<=nb_tache_per_job-1;i++){
-                        LR_process_duree = LR_process_duree + instance.duration(LRProcess.job,i);
-                    }
-
-                  //  System.out.println("Après initialisation de l'itération la LRPT est "+LRProcess.toString()+" Dont la durée est "+LR_process_duree);
-
-
-                    for(Task task_iterator : task_to_exec){
-
-                        int tache_iterator_duree = 0;
-
-                        for(int ite = task_iterator.task;ite<=nb_tache_per_job-1;ite++){
-                            tache_iterator_duree = tache_iterator_duree + instance.duration(task_iterator.job,ite);
-                        }
-
-                        if(tache_iterator_duree > LR_process_duree){
-                            LRProcess = task_iterator;
-                            LR_process_duree = tache_iterator_duree;
-
-                        }
-
-
-                    }
-                    //System.out.println("A la fin de la boucle for le  LRPT est "+LRProcess.toString()+" Dont la durée est "+LR_process_duree+" On va donc le retirer ");
-                    task_to_exec.remove(LRProcess);
-
-                    if((LRProcess.task + 1) < nb_tache_per_job){
-                        Task task_ajouter = new Task(LRProcess.job,LRProcess.task+1);
-                        task_to_exec.add(task_ajouter);
-                        //  System.out.println("On ajoute la new task la liste est de taille "+task_to_exec.size()+" On a ajouté la task "+task_ajouter.toString());
-                    }
-                    newRorder.addTaskToMachine(instance.machine(LRProcess),LRProcess);
-
-                    LRProcess = null;
-
-                    break;
-
-
-                case EST_SPT:
-
-                    Task EST = task_to_exec.get(0);
-                    int EST_start_time = Math.max(dispo_job.get(EST.job),dispo_machine.get(instance.machine(EST)));
-
-                    for(Task task_iterator : task_to_exec){
-                        int task_iterator_start_time = Math.max(dispo_job.get(task_iterator.job),dispo_machine.get(instance.machine(task_iterator)));
-
-                        if(task_iterator_start_time < EST_start_time){
-                            EST_start_time = task_iterator_start_time;
-                            EST = task_iterator;
-                        }
-                        else if(task_iterator_start_time == EST_start_time){
-                            if(instance.duration(task_iterator) < instance.duration(EST)){
-                                EST_start_time = task_iterator_start_time;
-                                EST = task_iterator;
-                            }
-                        }
-                    }
-                    task_to_exec.remove(EST);
-
-                    if((EST.task + 1) < nb_tache_per_job){
-                        Task task_ajouter = new Task(EST.job,EST.task+1);
-                        task_to_exec.add(task_ajouter);
-                        //  System.out.println("On ajoute la new task la liste est de taille "+task_to_exec.size()+" On a ajouté la task "+task_ajouter.toString());
-                    }
-                    newRorder.addTaskToMachine(instance.machine(EST),EST);
-                    //System.out.println(EST);
-
-                    //Maj pour MAchine et Job = EST_start_time + duration(EST))
+        int peek() {
+            return heap[0];
+        }
 
-                    dispo_machine.set(instance.machine(EST),EST_start_time+instance.duration(EST));
-                    dispo_job.set(EST.job,EST_start_time+instance.duration(EST));
+        void push(int job, long primaryKey, long secondaryKey) {
+            primary[job] = primaryKey;
+            secondary[job] = secondaryKey;
+            int i = size++;
+            while(i > 0 && less(job, heap[(i - 1) / 2])) {
+                heap[i] = heap[(i - 1) / 2];
+                i = (i - 1) / 2;
+            }
+            heap[i] = job;
+        }
 
+        int pop() {
+            int top = heap[0];
+            size--;
+            if(size > 0) {
+                heap[0] = heap[size];
+                siftDown();
+            }
+            return top;
+        }
 
+        /** Increases the primary key of the job at the top of the heap. */
+        void updateTop(long primaryKey) {
+            primary[heap[0]] = primaryKey;
+            siftDown();
+        }
 
+        private void siftDown() {
+            int job = heap[0];
+            int i = 0;
+            while(2 * i + 1 < size) {
+                int child = 2 * i + 1;
+                if(child + 1 < size && less(heap[child + 1], heap[child]))
+                    child++;
+                if(!less(heap[child], job))
                     break;
-
-                case EST_LPT:
-                    EST = task_to_exec.get(0);
-                    EST_start_time = Math.max(dispo_job.get(EST.job),dispo_machine.get(instance.machine(EST)));
-
-                    for(Task task_iterator : task_to_exec){
-                        int task_iterator_start_time = Math.max(dispo_job.get(task_iterator.job),dispo_machine.get(instance.machine(task_iterator)));
-
-                        if(task_iterator_start_time < EST_start_time){
-                            EST_start_time = task_iterator_start_time;
-                            EST = task_iterator;
-                        }
-                        else if(task_iterator_start_time == EST_start_time){
-                            if(instance.duration(task_iterator) > instance.duration(EST)){
-                                EST_start_time = task_iterator_start_time;
-                                EST = task_iterator;
-                            }
-                        }
-                    }
-                    task_to_exec.remove(EST);
-
-                    if((EST.task + 1) < nb_tache_per_job){
-                        Task task_ajouter = new Task(EST.job,EST.task+1);
-                        task_to_exec.add(task_ajouter);
-                        //  System.out.println("On ajoute la new task la liste est de taille "+task_to_exec.size()+" On a ajouté la task "+task_ajouter.toString());
-                    }
-                    newRorder.addTaskToMachine(instance.machine(EST),EST);
-                    //System.out.println(EST);
-
-                    //Maj pour MAchine et Job = EST_start_time + duration(EST))
-
-                    dispo_machine.set(instance.machine(EST),EST_start_time+instance.duration(EST));
-                    dispo_job.set(EST.job,EST_start_time+instance.duration(EST));
-
+                heap[i] = heap[child];
+                i = child;
             }
-
-
-
-
+            heap[i] = job;
         }
 
-
-        return newRorder.toSchedule();
+        private boolean less(int job1, int job2) {
+            return primary[job1] < primary[job2] || (primary[job1] == primary[job2] && secondary[job1] < secondary[job2]);
+        }
     }
 }
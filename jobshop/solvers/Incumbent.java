@@ -0,0 +1,54 @@
+package jobshop.solvers;
+
+import jobshop.encodings.Schedule;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+/** Best solution found so far, shared between several threads without locking.
+ *
+ * Threads publish their solutions with <code>offer()</code>, which only replaces the current
+ * incumbent if the new schedule has a strictly smaller makespan.
+ */
+public final class Incumbent {
+
+    /** A schedule together with its makespan, so that it is computed only once. */
+    private static final class Entry {
+        final Schedule schedule;
+        final int makespan;
+
+        Entry(Schedule schedule) {
+            this.schedule = schedule;
+            this.makespan = schedule.makespan();
+        }
+    }
+
+    private final AtomicReference<Entry> best = new AtomicReference<>();
+
+    /** Proposes a new solution.
+     *
+     * @return True if the candidate became the new incumbent.
+     */
+    public boolean offer(Schedule candidate) {
+        Entry entry = new Entry(candidate);
+        while(true) {
+            Entry current = best.get();
+            if(current != null && current.makespan <= entry.makespan)
+                return false;
+            if(best.compareAndSet(current, entry))
+                return true;
+        }
+    }
+
+    /** Makespan of the incumbent, or Integer.MAX_VALUE if no solution has been offered yet. */
+    public int makespan() {
+        Entry current = best.get();
+        return current == null ? Integer.MAX_VALUE : current.makespan;
+    }
+
+    /** The incumbent, if any. */
+    public Optional<Schedule> get() {
+        Entry current = best.get();
+        return current == null ? Optional.empty() : Optional.of(current.schedule);
+    }
+}
@@ -0,0 +1,204 @@
+package jobshop.solvers;
+
+import jobshop.Instance;
+import jobshop.encodings.ResourceOrder;
+import jobshop.encodings.Schedule;
+import jobshop.solvers.neighborhood.Nowicki;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/** Runs several solvers at the same time, on separate threads, and returns the best schedule found by any of them.
+ *
+ * All threads share an Incumbent, to which each of them publishes its improvements as soon as it finds them.
+ * When its search returns before the deadline, or when it has not improved for a while and is behind the
+ * incumbent, a thread restarts from a random perturbation of the global best solution (with a tabu search for
+ * tabu configurations, a descent otherwise, over the neighborhood of the configuration), until its budget is
+ * exhausted.
+ * The budget applies to each thread separately, except for the target makespan and stop requests, that stop all
+ * threads as soon as the shared incumbent reaches the target or the caller asks to stop.
+ */
+public class PortfolioSolver implements Solver {
+
+    /** Number of random critical swaps applied to the incumbent before a restart. */
+    static final int PERTURBATION_STRENGTH = 5;
+
+    /** Solvers that are run in parallel, one thread each. */
+    final List<Solver> configurations;
+
+    /** Creates a new portfolio solver.
+     *
+     * @param configurations Solvers to run, each of them on its own thread.
+     */
+    public PortfolioSolver(List<Solver> configurations) {
+        this.configurations = configurations;
+    }
+
+    /** Interval at which the calling thread publishes the incumbent and forwards stop requests, in milliseconds. */
+    static final long POLL_INTERVAL_MS = 10;
+
+    /** Time after which a search that has not improved, and is behind the incumbent, is restarted from the
+     * incumbent, in milliseconds. */
+    static final long STALL_MS = 500;
+
+    /** A worker thread, as seen from the calling thread. */
+    static final class Worker {
+        // statistics of the search in progress, replaced at each restart. Each of them starts with the counters
+        // of the previous searches of the worker, so that the budget applies to the whole worker
+        volatile SearchStatistics run = new SearchStatistics();
+        // best makespan and time of the last improvement of the search in progress
+        volatile int best = Integer.MAX_VALUE;
+        volatile long lastImprovement = System.currentTimeMillis();
+
+        /** Starts the statistics of a new search, that publishes its improvements to the incumbent. */
+        SearchStatistics restart(Incumbent incumbent) {
+            SearchStatistics next = new SearchStatistics();
+            next.add(run);
+            best = Integer.MAX_VALUE;
+            lastImprovement = System.currentTimeMillis();
+            next.setImprovementListener(schedule -> {
+                incumbent.offer(schedule);
+                best = schedule.makespan();
+                lastImprovement = System.currentTimeMillis();
+            });
+            run = next;
+            return next;
+        }
+
+        /** True if the search in progress has not improved for STALL_MS and is behind the incumbent. */
+        boolean stalled(Incumbent incumbent, long now) {
+            return now - lastImprovement > STALL_MS && best > incumbent.makespan();
+        }
+    }
+
+    @Override
+    public Optional<Schedule> solve(Instance instance, long deadline) {
+        return solve(instance, SearchBudget.until(deadline).withLowerBound(instance), new SearchStatistics());
+    }
+
+    @Override
+    public Optional<Schedule> solve(Instance instance, SearchBudget budget, SearchStatistics statistics) {
+        Incumbent incumbent = new Incumbent();
+        ExecutorService executor = Executors.newFixedThreadPool(configurations.size());
+        // set before stopping the search in progress of all workers, so that they do not restart
+        AtomicBoolean stopping = new AtomicBoolean();
+
+        Worker[] workers = new Worker[configurations.size()];
+        for(int i = 0 ; i < configurations.size() ; i++) {
+            Solver configuration = configurations.get(i);
+            Worker worker = workers[i] = new Worker();
+            Random random = new Random(i);
+            executor.submit(() -> {
+                Solver solver = configuration;
+                while(true) {
+                    SearchStatistics run = worker.restart(incumbent);
+                    // checked after publishing the new run, which the calling thread stops after setting the flag
+                    if(stopping.get())
+                        break;
+                    solver.solve(instance, budget, run).ifPresent(incumbent::offer);
+
+                    // restart from the global best until the budget of the worker is exhausted. A stop requested
+                    // by the calling thread for a restart only concerns the search that just returned
+                    if(stopping.get() || budget.timeIsUp() || incumbent.get().isEmpty()
+                            || (!run.stopRequested() && budget.countersExhausted(run)))
+                        break;
+                    solver = restartFrom(configuration, perturb(new ResourceOrder(incumbent.get().get()), random));
+                }
+            });
+        }
+
+        executor.shutdown();
+        try {
+            // all workers check the deadline, leave them a bit of time to return their last solution.
+            // Meanwhile, improvements are reported from this thread only, as statistics are not thread safe.
+            long end = budget.deadline == SearchBudget.UNLIMITED ? SearchBudget.UNLIMITED : budget.deadline + 100;
+            int published = Integer.MAX_VALUE;
+            while(!executor.awaitTermination(Math.max(1, Math.min(POLL_INTERVAL_MS, end - System.currentTimeMillis())), TimeUnit.MILLISECONDS)
+                    && System.currentTimeMillis() < end) {
+                published = publish(incumbent, published, statistics);
+                if(budget.countersExhausted(statistics) && !stopping.get()) {
+                    stopping.set(true);
+                    for(Worker worker : workers)
+                        worker.run.requestStop();
+                }
+                long now = System.currentTimeMillis();
+                for(Worker worker : workers) {
+                    if(worker.stalled(incumbent, now))
+                        worker.run.requestStop();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // the workers cannot be interrupted in the middle of a search: stop the searches still in progress and
+        // wait for them, so that no worker keeps a core busy after this method returns and their statistics are
+        // only read once they are no longer updated
+        stopping.set(true);
+        for(Worker worker : workers)
+            worker.run.requestStop();
+        boolean interrupted = Thread.interrupted();
+        while(true) {
+            try {
+                if(executor.awaitTermination(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS))
+                    break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if(interrupted)
+            Thread.currentThread().interrupt();
+
+        for(Worker worker : workers)
+            statistics.add(worker.run);
+        publish(incumbent, statistics.bestMakespan == -1 ? Integer.MAX_VALUE : statistics.bestMakespan, statistics);
+        return incumbent.get();
+    }
+
+    /** Reports the incumbent to the statistics if it is better than the last published makespan.
+     *
+     * @return The makespan of the last published solution.
+     */
+    static int publish(Incumbent incumbent, int published, SearchStatistics statistics) {
+        Optional<Schedule> best = incumbent.get();
+        if(best.isEmpty() || best.get().makespan() >= published)
+            return published;
+        int makespan = best.get().makespan();
+        statistics.improved(makespan, best.get());
+        return makespan;
+    }
+
+    /** Solver restarting the search of a configuration from the given solution: a tabu search or a descent with
+     * the same parameters for tabu and descent configurations, a descent over the Nowicki neighborhood otherwise. */
+    static Solver restartFrom(Solver configuration, ResourceOrder start) {
+        Solver seed = (pb, deadline) -> start.toSchedule();
+        if(configuration instanceof TabouSolver) {
+            TabouSolver tabu = (TabouSolver) configuration;
+            return new TabouSolver(tabu.neighborhood, seed, tabu.tenure, tabu.maxIterations, tabu.exactCandidates, tabu.pool);
+        }
+        if(configuration instanceof DescentSolver)
+            return new DescentSolver(((DescentSolver) configuration).neighborhood, seed);
+        return new DescentSolver(new Nowicki(), seed);
+    }
+
+    /** Applies a few random swaps of the Nowicki neighborhood to the given resource order. */
+    static ResourceOrder perturb(ResourceOrder order, Random random) {
+        Nowicki nowicki = new Nowicki();
+        int[] scratch = new int[ResourceOrder.scratchSize(order.instance)];
+        for(int i = 0 ; i < PERTURBATION_STRENGTH ; i++) {
+            List<Nowicki.Swap> swaps = nowicki.allSwaps(order);
+            if(swaps.isEmpty())
+                break;
+            ResourceOrder next = swaps.get(random.nextInt(swaps.size())).generateFrom(order);
+            // swaps of adjacent critical tasks never introduce a cycle, but it is cheap to make sure
+            if(next.makespan(scratch) != -1)
+                order = next;
+        }
+        return order;
+    }
+}
@@ -0,0 +1,105 @@
+package jobshop.solvers;
+
+import jobshop.Instance;
+import jobshop.LowerBounds;
+
+/** Limits on the work a solver may do: a wall-clock deadline, a number of evaluated neighbors, a number of
+ * iterations, and a target makespan below which there is no point in searching further.
+ *
+ * Budgets are immutable and can be shared between runs and threads. Counters are read from the SearchStatistics
+ * of the run, so a budget without deadline gives the same result on any machine. For instance:
+ * <pre>
+ *     SearchBudget.until(deadline).withMaxEvaluations(1_000_000).withTarget(bestKnown)
+ * </pre>
+ */
+public final class SearchBudget {
+
+    /** Value of the limits that are not set. */
+    public static final long UNLIMITED = Long.MAX_VALUE;
+
+    /** Absolute time at which the solver should have returned, in milliseconds (System.currentTimeMillis()). */
+    public final long deadline;
+
+    /** Maximum number of neighbors evaluated (see SearchStatistics.neighborsEvaluated). */
+    public final long maxEvaluations;
+
+    /** Maximum number of iterations (see SearchStatistics.iterations). */
+    public final long maxIterations;
+
+    /** The search stops as soon as a solution with a makespan lower or equal to this one is found,
+     * 0 if there is no target. */
+    public final int targetMakespan;
+
+    private SearchBudget(long deadline, long maxEvaluations, long maxIterations, int targetMakespan) {
+        this.deadline = deadline;
+        this.maxEvaluations = maxEvaluations;
+        this.maxIterations = maxIterations;
+        this.targetMakespan = targetMakespan;
+    }
+
+    /** A budget only limited by a deadline. */
+    public static SearchBudget until(long deadline) {
+        return new SearchBudget(deadline, UNLIMITED, UNLIMITED, 0);
+    }
+
+    /** A budget without any limit, that must be restricted with the <code>with...()</code> methods. */
+    public static SearchBudget unlimited() {
+        return until(UNLIMITED);
+    }
+
+    /** The same budget with a different deadline. */
+    public SearchBudget withDeadline(long deadline) {
+        return new SearchBudget(deadline, maxEvaluations, maxIterations, targetMakespan);
+    }
+
+    /** The same budget, also limited to the given number of evaluated neighbors. */
+    public SearchBudget withMaxEvaluations(long maxEvaluations) {
+        return new SearchBudget(deadline, maxEvaluations, maxIterations, targetMakespan);
+    }
+
+    /** The same budget, also limited to the given number of iterations. */
+    public SearchBudget withMaxIterations(long maxIterations) {
+        return new SearchBudget(deadline, maxEvaluations, maxIterations, targetMakespan);
+    }
+
+    /** The same budget, also stopping when a makespan lower or equal to the target is found. */
+    public SearchBudget withTarget(int targetMakespan) {
+        return new SearchBudget(deadline, maxEvaluations, maxIterations, targetMakespan);
+    }
+
+    /** The same budget, also stopping when a makespan equal to the lower bound of the instance is found, since
+     * such a solution is optimal. A higher target is kept. */
+    public SearchBudget withLowerBound(Instance instance) {
+        return withTarget(Math.max(targetMakespan, LowerBounds.of(instance)));
+    }
+
+    /** True if the deadline has been met. */
+    public boolean timeIsUp() {
+        return deadline != UNLIMITED && System.currentTimeMillis() >= deadline;
+    }
+
+    /** True if the counters of the run exceed the budget, the target has been reached or a stop was requested.
+     * Does not read the clock: solvers whose iterations are very short call it at every iteration and only
+     * check <code>timeIsUp()</code> from time to time. */
+    public boolean countersExhausted(SearchStatistics statistics) {
+        return statistics.neighborsEvaluated >= maxEvaluations
+                || statistics.iterations >= maxIterations
+                || (statistics.bestMakespan != -1 && statistics.bestMakespan <= targetMakespan)
+                || statistics.stopRequested();
+    }
+
+    /** True if the solver should stop. */
+    public boolean exhausted(SearchStatistics statistics) {
+        return countersExhausted(statistics) || timeIsUp();
+    }
+
+    @Override
+    public String toString() {
+        return "SearchBudget{" +
+                "deadline=" + (deadline == UNLIMITED ? "none" : deadline) +
+                ", maxEvaluations=" + (maxEvaluations == UNLIMITED ? "none" : maxEvaluations) +
+                ", maxIterations=" + (maxIterations == UNLIMITED ? "none" : maxIterations) +
+                ", targetMakespan=" + (targetMakespan == 0 ? "none" : targetMakespan) +
+                '}';
+    }
+}
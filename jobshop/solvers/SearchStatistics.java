@@ -0,0 +1,164 @@
+package jobshop.solvers;
+
+import jobshop.encodings.Encoding;
+import jobshop.encodings.Schedule;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/** Counters describing the work done by a solver during a run.
+ *
+ * Solvers update the public counters directly: they are plain fields, so that updating them in the search loop
+ * costs no more than an increment. A statistics object must only be updated by the thread running the solver.
+ * The caller brackets the run with <code>start()</code> and <code>stop()</code>.
+ *
+ * The object is also the channel through which the caller follows and controls a running search: it may register
+ * a listener that receives each new best solution, and ask the solver to stop with <code>requestStop()</code>
+ * (the only method that can be called from another thread).
+ */
+public final class SearchStatistics {
+
+    /** Number of iterations of the main loop of the solver (e.g. moves applied by a local search). */
+    public long iterations;
+
+    /** Number of neighbors generated, as moves or as full solutions. */
+    public long neighborsGenerated;
+
+    /** Number of neighbors whose makespan was computed or estimated. */
+    public long neighborsEvaluated;
+
+    /** Number of full decodings of a solution (ResourceOrder to start times, heads and tails). */
+    public long decodes;
+
+    /** Number of neighbors found in a cache of already visited solutions, and thus not evaluated again. */
+    public long cacheHits;
+
+    /** Makespan of the best solution found, -1 if unknown. */
+    public int bestMakespan = -1;
+
+    /** Time at which the best solution was found, in milliseconds since <code>start()</code>. */
+    public long timeToBest;
+
+    /** Time at which the run started and stopped, in milliseconds (System.currentTimeMillis()). */
+    public long startTime, endTime;
+
+    /** Deadline given to the solver, in milliseconds (System.currentTimeMillis()). */
+    public long deadline;
+
+    /** Bytes allocated by the thread running the solver, -1 if the JVM cannot measure it. */
+    public long allocatedBytes = -1;
+
+    /** True if the solver proved that its best solution is optimal. */
+    public boolean provenOptimal;
+
+    private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    /** Set by another thread to ask the solver to return its best solution as soon as possible. */
+    private volatile boolean stopRequested;
+
+    /** Receives each new best solution, null if nobody listens. */
+    private Consumer<Schedule> improvementListener;
+
+    /** Asks the solver to stop and return its best solution. Can be called from any thread. */
+    public void requestStop() {
+        this.stopRequested = true;
+    }
+
+    /** True if the solver has been asked to stop. Solvers check it in their main loop, next to their deadline. */
+    public boolean stopRequested() {
+        return stopRequested;
+    }
+
+    /** Registers a listener called, on the thread of the solver, with each new best solution. */
+    public void setImprovementListener(Consumer<Schedule> listener) {
+        this.improvementListener = listener;
+    }
+
+    /** Records the start of a run with the given deadline. */
+    public void start(long deadline) {
+        this.deadline = deadline;
+        this.startTime = System.currentTimeMillis();
+        this.allocatedBytes = threadAllocatedBytes();
+    }
+
+    /** Records the end of a run. */
+    public void stop() {
+        this.endTime = System.currentTimeMillis();
+        long allocated = threadAllocatedBytes();
+        this.allocatedBytes = allocated == -1 || allocatedBytes == -1 ? -1 : allocated - allocatedBytes;
+    }
+
+    /** Records a new best solution. Only called on improvements, so reading the clock here is cheap. */
+    public void improved(int makespan) {
+        this.bestMakespan = makespan;
+        this.timeToBest = System.currentTimeMillis() - startTime;
+    }
+
+    /** Records a new best solution and hands it to the listener, if any.
+     * The solution is only decoded when somebody listens. */
+    public void improved(int makespan, Encoding solution) {
+        improved(makespan);
+        if(improvementListener != null)
+            solution.toSchedule().ifPresent(improvementListener);
+    }
+
+    /** Adds the counters of another run (e.g. of a worker thread) to those of this one. */
+    public void add(SearchStatistics other) {
+        this.iterations += other.iterations;
+        this.neighborsGenerated += other.neighborsGenerated;
+        this.neighborsEvaluated += other.neighborsEvaluated;
+        this.decodes += other.decodes;
+        this.cacheHits += other.cacheHits;
+    }
+
+    /** Duration of the run, in milliseconds. */
+    public long runtime() {
+        return endTime - startTime;
+    }
+
+    /** Fraction of the time until the deadline actually used by the run. */
+    public double budgetUsed() {
+        long budget = deadline - startTime;
+        return budget <= 0 ? 1.0 : (double) runtime() / budget;
+    }
+
+    /** Number of neighbors evaluated per second. */
+    public double evaluationsPerSecond() {
+        return runtime() <= 0 ? 0 : 1000.0 * neighborsEvaluated / runtime();
+    }
+
+    /** Bytes allocated by the current thread, or -1 if not supported. */
+    private static long threadAllocatedBytes() {
+        if(threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) threads;
+            if(mx.isThreadAllocatedMemorySupported() && mx.isThreadAllocatedMemoryEnabled())
+                return mx.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    /** Header of the CSV lines produced by <code>toCsv()</code>. */
+    public static String csvHeader() {
+        return "instance,solver,runtime_ms,budget_used,iterations,neighbors_generated,neighbors_evaluated," +
+                "evaluations_per_s,decodes,cache_hits,best_makespan,time_to_best_ms,allocated_bytes,proven_optimal";
+    }
+
+    /** The statistics of a run as a CSV line (see <code>csvHeader()</code>). */
+    public String toCsv(String instance, String solver) {
+        return String.format(Locale.ROOT, "%s,%s,%d,%.3f,%d,%d,%d,%.1f,%d,%d,%d,%d,%d,%b",
+                instance, solver, runtime(), budgetUsed(), iterations, neighborsGenerated, neighborsEvaluated,
+                evaluationsPerSecond(), decodes, cacheHits, bestMakespan, timeToBest, allocatedBytes, provenOptimal);
+    }
+
+    /** The statistics of a run as a JSON object on a single line. */
+    public String toJson(String instance, String solver) {
+        return String.format(Locale.ROOT, "{\"instance\":\"%s\",\"solver\":\"%s\",\"runtime_ms\":%d," +
+                        "\"budget_used\":%.3f,\"iterations\":%d,\"neighbors_generated\":%d,\"neighbors_evaluated\":%d," +
+                        "\"evaluations_per_s\":%.1f,\"decodes\":%d,\"cache_hits\":%d,\"best_makespan\":%d,\"time_to_best_ms\":%d," +
+                        "\"allocated_bytes\":%d,\"proven_optimal\":%b}",
+                instance, solver, runtime(), budgetUsed(), iterations, neighborsGenerated, neighborsEvaluated,
+                evaluationsPerSecond(), decodes, cacheHits, bestMakespan, timeToBest, allocatedBytes, provenOptimal);
+    }
+}
@@ -0,0 +1,386 @@
+package jobshop.solvers;
+
+import jobshop.Instance;
+import jobshop.encodings.ResourceOrder;
+import jobshop.encodings.Schedule;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/** Shifting bottleneck heuristic (Adams, Balas and Zawack, 1988).
+ *
+ * Machines are sequenced one at a time. At each step, every machine not sequenced yet is relaxed into a
+ * one-machine problem: its tasks are released at their heads and followed by their tails, both computed as
+ * longest paths in the graph of the jobs and of the machines already sequenced. The machine whose problem has the
+ * largest optimal value is the bottleneck: it is sequenced in the order of that optimum. Then each machine already
+ * sequenced is sequenced again, given all the others, as long as this does not increase the makespan.
+ *
+ * One-machine problems are solved by Carlier's branch and bound (1982), limited to NODE_LIMIT nodes per problem.
+ * The solver does not read the deadline: like the greedy solver, it returns in a few milliseconds even on 100x20
+ * instances, and always returns the same schedule for the same instance, so that it can be cached to seed a
+ * local search.
+ */
+public class ShiftingBottleneckSolver implements Solver {
+
+    /** Maximal number of nodes explored by Carlier's algorithm on a one-machine problem. */
+    static final int NODE_LIMIT = 100;
+
+    @Override
+    public Optional<Schedule> solve(Instance instance, long deadline) {
+        Graph graph = new Graph(instance);
+        OneMachineProblem problem = new OneMachineProblem(instance.numJobs);
+        int[] sequence = new int[instance.numJobs];
+        // machines in the order in which they were sequenced
+        int[] sequenced = new int[instance.numMachines];
+        boolean[] isSequenced = new boolean[instance.numMachines];
+
+        graph.propagate();
+        for(int step = 0 ; step < instance.numMachines ; step++) {
+            // the bottleneck is the unsequenced machine whose one-machine problem has the largest value
+            int bottleneck = -1;
+            int bottleneckValue = -1;
+            int[] bottleneckSequence = new int[instance.numJobs];
+            for(int machine = 0 ; machine < instance.numMachines ; machine++) {
+                if(isSequenced[machine])
+                    continue;
+                int value = graph.solve(machine, problem);
+                if(value > bottleneckValue) {
+                    bottleneck = machine;
+                    bottleneckValue = value;
+                    System.arraycopy(problem.bestOrder, 0, bottleneckSequence, 0, instance.numJobs);
+                }
+            }
+            graph.setSequence(bottleneck, bottleneckSequence);
+            if(!graph.propagate()) {
+                // the delayed precedences ignored by the one-machine problem created a cycle: order the tasks
+                // as they appear in a topological order of the graph without the machine, which is always valid
+                graph.clearSequence(bottleneck);
+                graph.propagate();
+                graph.topologicalSequence(bottleneck, bottleneckSequence);
+                graph.setSequence(bottleneck, bottleneckSequence);
+                graph.propagate();
+            }
+            sequenced[step] = bottleneck;
+            isSequenced[bottleneck] = true;
+
+            // re-optimisation of the machines sequenced before, given all the others
+            for(int i = 0 ; i < step ; i++) {
+                int machine = sequenced[i];
+                int makespan = graph.makespan();
+                int[] previous = graph.sequence(machine);
+                graph.clearSequence(machine);
+                graph.propagate();
+                graph.solve(machine, problem);
+                System.arraycopy(problem.bestOrder, 0, sequence, 0, instance.numJobs);
+                graph.setSequence(machine, sequence);
+                if(!graph.propagate() || graph.makespan() > makespan) {
+                    graph.setSequence(machine, previous);
+                    graph.propagate();
+                }
+            }
+        }
+
+        ResourceOrder order = new ResourceOrder(instance);
+        for(int machine = 0 ; machine < instance.numMachines ; machine++)
+            for(int job : graph.sequence(machine))
+                order.addTaskToMachine(machine, job, instance.task_with_machine(job, machine));
+        return order.toSchedule();
+    }
+
+    /** Disjunctive graph in which only some machines are sequenced, with the heads and tails of its tasks.
+     * Task ids are job * numTasks + task. */
+    static final class Graph {
+        final Instance instance;
+        final int numOps;
+        final int[] duration;
+        // previous and next task of the job, -1 if none
+        final int[] jobPred;
+        final int[] jobSucc;
+        // previous and next task on the machine, -1 if none or if the machine is not sequenced
+        final int[] machinePred;
+        final int[] machineSucc;
+        // sequence of jobs on each machine, null if the machine is not sequenced
+        final int[][] sequences;
+        // longest path from the start to each task (excluded) and from each task (excluded) to the end
+        final int[] head;
+        final int[] tail;
+        // tasks in topological order, and position of each task in that order
+        final int[] topological;
+        final int[] rank;
+        // working array of the topological sort
+        private final int[] inDegree;
+
+        Graph(Instance instance) {
+            this.instance = instance;
+            this.numOps = instance.numJobs * instance.numTasks;
+            this.duration = new int[numOps];
+            this.jobPred = new int[numOps];
+            this.jobSucc = new int[numOps];
+            for(int job = 0 ; job < instance.numJobs ; job++) {
+                for(int task = 0 ; task < instance.numTasks ; task++) {
+                    int op = job * instance.numTasks + task;
+                    duration[op] = instance.duration(job, task);
+                    jobPred[op] = task == 0 ? -1 : op - 1;
+                    jobSucc[op] = task == instance.numTasks - 1 ? -1 : op + 1;
+                }
+            }
+            this.machinePred = new int[numOps];
+            this.machineSucc = new int[numOps];
+            Arrays.fill(machinePred, -1);
+            Arrays.fill(machineSucc, -1);
+            this.sequences = new int[instance.numMachines][];
+            this.head = new int[numOps];
+            this.tail = new int[numOps];
+            this.topological = new int[numOps];
+            this.rank = new int[numOps];
+            this.inDegree = new int[numOps];
+        }
+
+        /** Task of the job on the machine. */
+        int op(int job, int machine) {
+            return job * instance.numTasks + instance.task_with_machine(job, machine);
+        }
+
+        /** Sequences the machine: the jobs are processed in the given order, which is copied. */
+        void setSequence(int machine, int[] jobs) {
+            sequences[machine] = jobs.clone();
+            for(int i = 0 ; i < jobs.length ; i++) {
+                int op = op(jobs[i], machine);
+                machinePred[op] = i == 0 ? -1 : op(jobs[i-1], machine);
+                machineSucc[op] = i == jobs.length - 1 ? -1 : op(jobs[i+1], machine);
+            }
+        }
+
+        /** Removes the sequence of the machine. */
+        void clearSequence(int machine) {
+            sequences[machine] = null;
+            for(int job = 0 ; job < instance.numJobs ; job++) {
+                int op = op(job, machine);
+                machinePred[op] = -1;
+                machineSucc[op] = -1;
+            }
+        }
+
+        /** Sequence of jobs on the machine, null if it is not sequenced. */
+        int[] sequence(int machine) {
+            return sequences[machine];
+        }
+
+        /** Computes the heads and tails of all tasks.
+         * @return False if the graph contains a cycle, in which case heads and tails are meaningless. */
+        boolean propagate() {
+            // topological sort (Kahn), the head of each task being final when it is reached
+            int size = 0;
+            for(int op = 0 ; op < numOps ; op++) {
+                head[op] = 0;
+                inDegree[op] = (jobPred[op] == -1 ? 0 : 1) + (machinePred[op] == -1 ? 0 : 1);
+                if(inDegree[op] == 0)
+                    topological[size++] = op;
+            }
+            for(int i = 0 ; i < size ; i++) {
+                int op = topological[i];
+                rank[op] = i;
+                int end = head[op] + duration[op];
+                int next = jobSucc[op];
+                if(next != -1) {
+                    head[next] = Math.max(head[next], end);
+                    if(--inDegree[next] == 0)
+                        topological[size++] = next;
+                }
+                next = machineSucc[op];
+                if(next != -1) {
+                    head[next] = Math.max(head[next], end);
+                    if(--inDegree[next] == 0)
+                        topological[size++] = next;
+                }
+            }
+            if(size < numOps)
+                return false;
+
+            for(int i = numOps - 1 ; i >= 0 ; i--) {
+                int op = topological[i];
+                int t = 0;
+                int succ = jobSucc[op];
+                if(succ != -1)
+                    t = tail[succ] + duration[succ];
+                succ = machineSucc[op];
+                if(succ != -1)
+                    t = Math.max(t, tail[succ] + duration[succ]);
+                tail[op] = t;
+            }
+            return true;
+        }
+
+        /** Length of the longest path of the graph, as of the last propagation. */
+        int makespan() {
+            int makespan = 0;
+            for(int op = 0 ; op < numOps ; op++)
+                makespan = Math.max(makespan, head[op] + duration[op] + tail[op]);
+            return makespan;
+        }
+
+        /** Solves the one-machine problem of an unsequenced machine, with the heads and tails of the last
+         * propagation. The order of jobs is left in problem.bestOrder.
+         * @return The value of the best sequence found. */
+        int solve(int machine, OneMachineProblem problem) {
+            for(int job = 0 ; job < instance.numJobs ; job++) {
+                int op = op(job, machine);
+                problem.release[job] = head[op];
+                problem.duration[job] = duration[op];
+                problem.tail[job] = tail[op];
+            }
+            return problem.solve(NODE_LIMIT);
+        }
+
+        /** Orders the jobs on an unsequenced machine by the rank of their task in the last topological order. */
+        void topologicalSequence(int machine, int[] jobs) {
+            long[] keys = new long[instance.numJobs];
+            for(int job = 0 ; job < instance.numJobs ; job++)
+                keys[job] = ((long) rank[op(job, machine)] << 32) | job;
+            Arrays.sort(keys);
+            for(int i = 0 ; i < keys.length ; i++)
+                jobs[i] = (int) keys[i];
+        }
+    }
+
+    /** One-machine problem with release dates and tails (1|r_j,q_j|Cmax), solved by Carlier's algorithm.
+     *
+     * Each node builds the Schrage schedule (at any time, the available task with the largest tail is processed
+     * next). If that schedule is not optimal, its critical path contains a task c with a smaller tail than the
+     * last task of the path, and there is an optimal schedule in which c is either processed before all the
+     * tasks that follow it on the path, or after all of them: the two children enforce this by raising the
+     * release date or the tail of c.
+     */
+    static final class OneMachineProblem {
+        final int n;
+        final int[] release;
+        final int[] duration;
+        final int[] tail;
+        /** Best sequence found by the last call to <code>solve()</code>. */
+        final int[] bestOrder;
+        int bestValue;
+        int nodes;
+        int nodeLimit;
+
+        // working arrays of the Schrage schedule
+        private final int[] order;
+        private final int[] completion;
+        private final long[] byRelease;
+        private final GreedySolver.JobHeap available;
+
+        OneMachineProblem(int n) {
+            this.n = n;
+            this.release = new int[n];
+            this.duration = new int[n];
+            this.tail = new int[n];
+            this.bestOrder = new int[n];
+            this.order = new int[n];
+            this.completion = new int[n];
+            this.byRelease = new long[n];
+            this.available = new GreedySolver.JobHeap(n);
+        }
+
+        /** Solves the problem currently held in release, duration and tail, exploring at most nodeLimit nodes.
+         * @return The value of the best sequence found, left in bestOrder. */
+        int solve(int nodeLimit) {
+            this.bestValue = Integer.MAX_VALUE;
+            this.nodes = 0;
+            this.nodeLimit = nodeLimit;
+            branch(0);
+            return bestValue;
+        }
+
+        private void branch(int lowerBound) {
+            nodes++;
+            int value = schrage();
+            if(value < bestValue) {
+                bestValue = value;
+                System.arraycopy(order, 0, bestOrder, 0, n);
+            }
+            if(bestValue <= lowerBound || nodes >= nodeLimit)
+                return;
+
+            // b: last task of the critical path, a: its first task, c: last task of the path with a smaller tail
+            int b = -1;
+            for(int i = 0 ; i < n ; i++)
+                if(completion[order[i]] + tail[order[i]] == value)
+                    b = i;
+            int a = b;
+            int sum = 0;
+            for(int i = b ; i >= 0 ; i--) {
+                sum += duration[order[i]];
+                if(release[order[i]] + sum + tail[order[b]] == value)
+                    a = i;
+            }
+            int c = -1;
+            for(int i = b - 1 ; i >= a ; i--) {
+                if(tail[order[i]] < tail[order[b]]) {
+                    c = i;
+                    break;
+                }
+            }
+            if(c == -1)
+                return; // the Schrage schedule is optimal
+
+            // the tasks after c on the critical path
+            int minRelease = Integer.MAX_VALUE;
+            int minTail = Integer.MAX_VALUE;
+            int totalDuration = 0;
+            for(int i = c + 1 ; i <= b ; i++) {
+                minRelease = Math.min(minRelease, release[order[i]]);
+                minTail = Math.min(minTail, tail[order[i]]);
+                totalDuration += duration[order[i]];
+            }
+            int job = order[c];
+            int bound = Math.max(lowerBound, minRelease + totalDuration + minTail);
+
+            // c after all of them
+            int previousRelease = release[job];
+            release[job] = Math.max(release[job], minRelease + totalDuration);
+            int childBound = Math.max(bound, boundWithC(job, minRelease, minTail, totalDuration));
+            if(childBound < bestValue)
+                branch(childBound);
+            release[job] = previousRelease;
+
+            // c before all of them
+            int previousTail = tail[job];
+            tail[job] = Math.max(tail[job], minTail + totalDuration);
+            childBound = Math.max(bound, boundWithC(job, minRelease, minTail, totalDuration));
+            if(childBound < bestValue && nodes < nodeLimit)
+                branch(childBound);
+            tail[job] = previousTail;
+        }
+
+        /** Lower bound h(K + {c}) = min release + total duration + min tail of the tasks K after c and c itself. */
+        private int boundWithC(int job, int minRelease, int minTail, int totalDuration) {
+            return Math.min(minRelease, release[job]) + totalDuration + duration[job] + Math.min(minTail, tail[job]);
+        }
+
+        /** Builds the Schrage schedule in order and completion.
+         * @return Its value: the largest completion time plus tail. */
+        private int schrage() {
+            for(int job = 0 ; job < n ; job++)
+                byRelease[job] = ((long) release[job] << 32) | job;
+            Arrays.sort(byRelease);
+
+            int time = 0;
+            int value = 0;
+            int next = 0;
+            for(int i = 0 ; i < n ; i++) {
+                if(available.isEmpty())
+                    time = Math.max(time, (int) (byRelease[next] >>> 32));
+                while(next < n && (int) (byRelease[next] >>> 32) <= time) {
+                    int job = (int) byRelease[next++];
+                    // largest tail first, then smallest job number
+                    available.push(job, -tail[job], job);
+                }
+                int job = available.pop();
+                order[i] = job;
+                time += duration[job];
+                completion[job] = time;
+                value = Math.max(value, time + tail[job]);
+            }
+            return value;
+        }
+    }
+}
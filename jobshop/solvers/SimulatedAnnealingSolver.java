@@ -0,0 +1,157 @@
+package jobshop.solvers;
+
+import jobshop.Instance;
+import jobshop.encodings.ResourceOrder;
+import jobshop.encodings.Schedule;
+import jobshop.solvers.neighborhood.MoveEvaluator;
+
+import java.util.Optional;
+import java.util.Random;
+
+/** Simulated annealing over swaps of adjacent critical tasks (van Laarhoven, Aarts and Lenstra, 1992).
+ *
+ * At each step, a random pair of adjacent tasks of the critical path is drawn, and the makespan of the solution
+ * where they are swapped is estimated in constant time from the heads and tails of the current solution.
+ * A move increasing the makespan by delta is accepted with probability exp(-delta / temperature) (Metropolis).
+ * Only accepted moves are applied, in place: they update the heads and tails of the operations they affect, and
+ * the pairs are then collected from the critical operations, without scanning the whole solution.
+ *
+ * The temperature is lowered every <code>stepsPerTemperature</code> steps following the cooling schedule.
+ * When it falls below <code>finalTemperature</code>, the search restarts from the best solution with the
+ * initial temperature, until the budget is exhausted.
+ */
+public class SimulatedAnnealingSolver implements Solver {
+
+    /** How the temperature decreases. */
+    public enum Cooling {
+        /** T <- rate * T */
+        GEOMETRIC,
+        /** T <- T / (1 + rate * T), Lundy and Mees (1986) */
+        LUNDY_MEES;
+
+        double next(double temperature, double rate) {
+            switch (this) {
+                case GEOMETRIC: return temperature * rate;
+                case LUNDY_MEES: return temperature / (1 + rate * temperature);
+                default: throw new RuntimeException("Unknown cooling schedule: " + this);
+            }
+        }
+    }
+
+    /** Number of steps between two readings of the clock. */
+    static final int CLOCK_CHECK_INTERVAL = 1024;
+
+    final Solver baseSolver;
+    final Cooling cooling;
+    /** Parameter of the cooling schedule. */
+    final double coolingRate;
+    /** Initial temperature, as a fraction of the makespan of the initial solution. */
+    final double initialTemperature;
+    /** Temperature below which the search restarts, as a fraction of the makespan of the initial solution. */
+    final double finalTemperature;
+    /** Number of steps at each temperature. */
+    final int stepsPerTemperature;
+    final long seed;
+
+    /** Creates a simulated annealing solver with a geometric cooling schedule suited to the usual instances.
+     *
+     * @param baseSolver A solver to provide the initial solution.
+     */
+    public SimulatedAnnealingSolver(Solver baseSolver) {
+        this(baseSolver, Cooling.GEOMETRIC, 0.95, 0.01, 0.0002, 1000, 0);
+    }
+
+    /** Creates a simulated annealing solver.
+     *
+     * @param baseSolver A solver to provide the initial solution.
+     * @param cooling Cooling schedule.
+     * @param coolingRate Factor of the geometric schedule (slightly below 1) or beta of the Lundy-Mees schedule.
+     * @param initialTemperature Initial temperature, as a fraction of the makespan of the initial solution.
+     * @param finalTemperature Temperature at which the search restarts from the best solution, as a fraction of
+     *                         the makespan of the initial solution.
+     * @param stepsPerTemperature Number of steps between two updates of the temperature.
+     * @param seed Seed of the random generator: with a budget on the number of evaluations, a run is reproducible.
+     */
+    public SimulatedAnnealingSolver(Solver baseSolver, Cooling cooling, double coolingRate, double initialTemperature,
+                                    double finalTemperature, int stepsPerTemperature, long seed) {
+        this.baseSolver = baseSolver;
+        this.cooling = cooling;
+        this.coolingRate = coolingRate;
+        this.initialTemperature = initialTemperature;
+        this.finalTemperature = finalTemperature;
+        this.stepsPerTemperature = stepsPerTemperature;
+        this.seed = seed;
+    }
+
+    @Override
+    public Optional<Schedule> solve(Instance instance, long deadline) {
+        return solve(instance, SearchBudget.until(deadline).withLowerBound(instance), new SearchStatistics());
+    }
+
+    @Override
+    public Optional<Schedule> solve(Instance instance, SearchBudget budget, SearchStatistics statistics) {
+        Optional<Schedule> initial = baseSolver.solve(instance, budget.deadline);
+        if(initial.isEmpty())
+            return initial;
+        Random random = new Random(seed);
+
+        // the current solution is modified in place by the evaluator
+        ResourceOrder current = new ResourceOrder(initial.get());
+        MoveEvaluator evaluator = new MoveEvaluator(instance);
+        evaluator.load(current);
+        statistics.decodes++;
+
+        ResourceOrder best = current.copy();
+        int bestMakespan = evaluator.makespan();
+        statistics.improved(bestMakespan, best);
+
+        int[] pairs = new int[instance.numMachines * instance.numJobs];
+        int numPairs = evaluator.criticalPairs(pairs);
+
+        double startTemperature = initialTemperature * bestMakespan;
+        double endTemperature = finalTemperature * bestMakespan;
+        double temperature = startTemperature;
+        int stepsAtTemperature = 0;
+
+        while(numPairs > 0 && !budget.countersExhausted(statistics)) {
+            if(statistics.iterations % CLOCK_CHECK_INTERVAL == 0 && budget.timeIsUp())
+                break;
+            statistics.iterations++;
+
+            // random swap of two adjacent critical tasks
+            int pair = pairs[random.nextInt(numPairs)];
+            int machine = pair / instance.numJobs;
+            int index = pair % instance.numJobs;
+            int delta = evaluator.estimate(machine, index) - evaluator.makespan();
+            statistics.neighborsGenerated++;
+            statistics.neighborsEvaluated++;
+
+            // Metropolis rule
+            if(delta <= 0 || random.nextDouble() < Math.exp(-delta / temperature)) {
+                evaluator.apply(machine, index);
+                statistics.decodes++;
+                numPairs = evaluator.criticalPairs(pairs);
+                if(evaluator.makespan() < bestMakespan) {
+                    bestMakespan = evaluator.makespan();
+                    best.copyFrom(current);
+                    statistics.improved(bestMakespan, best);
+                }
+            }
+
+            if(++stepsAtTemperature == stepsPerTemperature) {
+                stepsAtTemperature = 0;
+                temperature = cooling.next(temperature, coolingRate);
+                if(temperature < endTemperature) {
+                    // frozen: reheat and restart from the best solution
+                    temperature = startTemperature;
+                    current.copyFrom(best);
+                    evaluator.load(current);
+                    statistics.decodes++;
+                    numPairs = evaluator.criticalPairs(pairs);
+                }
+            }
+        }
+
+        return best.toSchedule();
+    }
+}
@@ -2,9 +2,12 @@ package jobshop.solvers;
 
 import jobshop.Instance;
 import jobshop.encodings.Schedule;
+import jobshop.solvers.neighborhood.BalasVazacopoulos;
 import jobshop.solvers.neighborhood.Nowicki;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 
 /** Common interface that must implemented by all solvers. */
 public interface Solver {
@@ -18,17 +21,56 @@ public interface Solver {
      */
     Optional<Schedule> solve(Instance instance, long deadline);
 
+    /** Look for a solution until blocked or the budget has been exhausted, recording the work done in statistics.
+     * Solvers that do not override this method only watch the deadline of the budget, only report their
+     * final solution and ignore stop requests.
+     *
+     * @param instance Jobshop instance that should be solved.
+     * @param budget Limits on the search: deadline, number of evaluations or iterations, target makespan.
+     * @param statistics Counters updated by the solver, started by the caller.
+     * @return An optional schedule that will be non empty if a solution was found.
+     */
+    default Optional<Schedule> solve(Instance instance, SearchBudget budget, SearchStatistics statistics) {
+        Optional<Schedule> result = solve(instance, budget.deadline);
+        result.ifPresent(schedule -> statistics.improved(schedule.makespan(), schedule));
+        return result;
+    }
+
     /** Static factory method to create a new solver based on its name. */
     static Solver getSolver(String name) {
         switch (name) {
             case "basic": return new BasicSolver();
             case "spt": return new GreedySolver(GreedySolver.Priority.SPT);
+            case "lpt": return new GreedySolver(GreedySolver.Priority.LPT);
+            case "srpt": return new GreedySolver(GreedySolver.Priority.SRPT);
             case "lrpt": return new GreedySolver(GreedySolver.Priority.LRPT);
             case "est_spt": return new GreedySolver(GreedySolver.Priority.EST_SPT);
             case "est_lpt": return new GreedySolver(GreedySolver.Priority.EST_LPT);
-            case "descente_est_spt": return new DescentSolver(new Nowicki(),new GreedySolver(GreedySolver.Priority.EST_SPT));
-            case "descente_spt": return new DescentSolver(new Nowicki(),new GreedySolver(GreedySolver.Priority.SPT));
-            case "tabou" : return new TabouSolver(new Nowicki(),new GreedySolver(GreedySolver.Priority.SPT));
+            case "est_srpt": return new GreedySolver(GreedySolver.Priority.EST_SRPT);
+            case "est_lrpt": return new GreedySolver(GreedySolver.Priority.EST_LRPT);
+            case "descente_est_spt": return new DescentSolver(new Nowicki(),CachedSolver.greedy(GreedySolver.Priority.EST_SPT));
+            case "descente_spt": return new DescentSolver(new Nowicki(),CachedSolver.greedy(GreedySolver.Priority.SPT));
+            case "tabou" : return new TabouSolver(new Nowicki(),CachedSolver.greedy(GreedySolver.Priority.SPT));
+            case "shifting_bottleneck": return new ShiftingBottleneckSolver();
+            case "descente_sb": return new DescentSolver(new Nowicki(),new CachedSolver(new ShiftingBottleneckSolver(), "shifting_bottleneck"));
+            case "tabou_n6_sb" : return new TabouSolver(new BalasVazacopoulos(),new CachedSolver(new ShiftingBottleneckSolver(), "shifting_bottleneck"));
+            case "descente_n6": return new DescentSolver(new BalasVazacopoulos(),CachedSolver.greedy(GreedySolver.Priority.EST_SPT));
+            case "tabou_n6" : return new TabouSolver(new BalasVazacopoulos(),CachedSolver.greedy(GreedySolver.Priority.SPT));
+            case "tabou_n6_par" : return new TabouSolver(new BalasVazacopoulos(),CachedSolver.greedy(GreedySolver.Priority.SPT),
+                    TabouSolver.DEFAULT_TENURE, Long.MAX_VALUE, TabouSolver.DEFAULT_EXACT_CANDIDATES, ForkJoinPool.commonPool());
+            case "recuit" : return new SimulatedAnnealingSolver(CachedSolver.greedy(GreedySolver.Priority.EST_SPT));
+            case "genetique" : return new GeneticSolver(CachedSolver.greedy(GreedySolver.Priority.EST_SPT), 0);
+            case "bnb" : return new BranchAndBoundSolver(new TabouSolver(new BalasVazacopoulos(),CachedSolver.greedy(GreedySolver.Priority.SPT)), ForkJoinPool.commonPool());
+            case "genetique_ls" : return new GeneticSolver(CachedSolver.greedy(GreedySolver.Priority.EST_SPT), 0.05);
+            case "portfolio" : return new PortfolioSolver(List.of(
+                    new DescentSolver(new Nowicki(), CachedSolver.greedy(GreedySolver.Priority.SPT)),
+                    new DescentSolver(new Nowicki(), CachedSolver.greedy(GreedySolver.Priority.LRPT)),
+                    new DescentSolver(new Nowicki(), CachedSolver.greedy(GreedySolver.Priority.EST_SPT)),
+                    new DescentSolver(new Nowicki(), CachedSolver.greedy(GreedySolver.Priority.EST_LPT)),
+                    new TabouSolver(new Nowicki(), CachedSolver.greedy(GreedySolver.Priority.SPT)),
+                    new TabouSolver(new Nowicki(), CachedSolver.greedy(GreedySolver.Priority.LRPT)),
+                    new TabouSolver(new Nowicki(), CachedSolver.greedy(GreedySolver.Priority.EST_SPT)),
+                    new TabouSolver(new Nowicki(), CachedSolver.greedy(GreedySolver.Priority.EST_LPT))));
             default: throw new RuntimeException("Unknown solver: "+ name);
         }
     }
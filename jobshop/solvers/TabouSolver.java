@@ -3,20 +3,52 @@ package jobshop.solvers;
 import jobshop.Instance;
 import jobshop.encodings.ResourceOrder;
 import jobshop.encodings.Schedule;
-import jobshop.encodings.Task;
+import jobshop.solvers.neighborhood.Move;
+import jobshop.solvers.neighborhood.MoveEvaluator;
 import jobshop.solvers.neighborhood.Neighborhood;
-import jobshop.solvers.neighborhood.Nowicki;
+import jobshop.solvers.neighborhood.NeighborDecoder;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
-import java.util.LinkedList;
-
+import java.util.concurrent.ForkJoinPool;
+
+/** Tabu search over a neighborhood such as the ones of Nowicki or Balas and Vazacopoulos.
+ *
+ * At each iteration, the search moves to the best neighbor of the current solution (even if it is worse)
+ * that is not tabu. After a move putting job b before job a on a machine, putting a back before b on any
+ * machine is tabu for the next <code>tenure</code> iterations (for all pairs of jobs whose order the move
+ * reverses). A tabu move is nevertheless accepted if its estimated makespan is better than the best one found
+ * so far (aspiration).
+ * The tabu list only forbids reversing recent moves: longer cycles are prevented by remembering the Zobrist hashes
+ * of the solutions visited, moves leading back to one of them not being admissible.
+ * The search only stops when its budget is exhausted or after a maximum number of iterations.
+ *
+ * Optionally, the admissible moves with the best estimates are decoded exactly and the best decoded one is
+ * selected (see NeighborDecoder), which pays for neighborhoods with long moves such as N6, where estimates are
+ * less accurate. The decodes can be split on a pool without changing the selected moves.
+ */
 public class TabouSolver implements Solver{
 
+    /** Tenure used when none is given. */
+    public static final int DEFAULT_TENURE = 10;
+
+    /** Number of moves decoded exactly at each iteration by the parallel configurations. */
+    public static final int DEFAULT_EXACT_CANDIDATES = 4;
+
+    /** Number of visited solutions remembered (see VisitedSet). */
+    static final int VISITED_CAPACITY = 1 << 16;
+
     final Neighborhood neighborhood;
     final Solver baseSolver;
+    /** Number of iterations during which the reverse of an applied move is tabu. */
+    final int tenure;
+    /** Maximum number of iterations, Long.MAX_VALUE to only stop at the deadline. */
+    final long maxIterations;
+    /** Number of admissible moves decoded exactly at each iteration, 0 to only rely on estimates. */
+    final int exactCandidates;
+    /** Pool on which the exact decodes are split, null to decode in the calling thread. */
+    final ForkJoinPool pool;
 
     /** Creates a new descent solver with a given neighborhood and a solver for the initial solution.
      *
@@ -24,88 +56,167 @@ public class TabouSolver implements Solver{
      * @param baseSolver A solver to provide the initial solution.
      */
     public TabouSolver(Neighborhood neighborhood, Solver baseSolver) {
-        this.neighborhood = neighborhood;
-        this.baseSolver = baseSolver;
+        this(neighborhood, baseSolver, DEFAULT_TENURE, Long.MAX_VALUE);
     }
 
+    /** Creates a new tabu solver.
+     *
+     * @param neighborhood Neighborhood object that should be used to generates neighbor solutions to the current candidate.
+     * @param baseSolver A solver to provide the initial solution.
+     * @param tenure Number of iterations during which the reverse of an applied move is tabu.
+     * @param maxIterations Maximum number of iterations, Long.MAX_VALUE to only stop at the deadline.
+     */
+    public TabouSolver(Neighborhood neighborhood, Solver baseSolver, int tenure, long maxIterations) {
+        this(neighborhood, baseSolver, tenure, maxIterations, 0, null);
+    }
 
-        @Override
-        public Optional<Schedule> solve(Instance instance,long deadline){
-
-            Optional<Schedule> return_schedule = this.baseSolver.solve(instance, deadline);
-            Nowicki now = new Nowicki();
-            LinkedList<Nowicki.Swap> listTaboo = new LinkedList<
-                    Nowicki.Swap>();
-            ResourceOrder RO = new ResourceOrder(return_schedule.get());
-
-            List<ResourceOrder> list_RO;
-
-
-            ResourceOrder best_RO = RO;
-            int best_makespan = best_RO.toSchedule().get().makespan();
-
-
-
-            long exec_time = 0;
-            boolean recherche = true;
-            ResourceOrder previousRO;
-
-            while ((exec_time < deadline) && (recherche)) {
-                previousRO = best_RO;
-                List<Nowicki.Swap> listSwapRO = now.allSwaps(best_RO);
-                ArrayList<Nowicki.Swap> nonTabooSwaps = new ArrayList<Nowicki.Swap>();
-                Nowicki.Swap best_Swap = null;
-
-
-                for(Nowicki.Swap ite : listSwapRO){
-
-                    boolean isTaboo = false;
-
-                    for(Nowicki.Swap BestIterator : listTaboo){
-                        if(ite.equals(BestIterator)){
-                            isTaboo = true;
-                            break;
-                        }
-                    }
-                    if (!isTaboo){
-                        nonTabooSwaps.add(ite);
-                    }
-                }
-
+    /** Creates a new tabu solver that selects its moves by decoding the most promising ones.
+     *
+     * @param neighborhood Neighborhood object that should be used to generates neighbor solutions to the current candidate.
+     * @param baseSolver A solver to provide the initial solution.
+     * @param tenure Number of iterations during which the reverse of an applied move is tabu.
+     * @param maxIterations Maximum number of iterations, Long.MAX_VALUE to only stop at the deadline.
+     * @param exactCandidates Number of admissible moves with the best estimates decoded exactly at each iteration,
+     *                        0 to select the move with the best estimate.
+     * @param pool Pool on which the exact decodes are split, null to decode in the calling thread. The selected
+     *             moves, and thus the result, are the same with or without a pool.
+     */
+    public TabouSolver(Neighborhood neighborhood, Solver baseSolver, int tenure, long maxIterations,
+                       int exactCandidates, ForkJoinPool pool) {
+        this.neighborhood = neighborhood;
+        this.baseSolver = baseSolver;
+        this.tenure = tenure;
+        this.maxIterations = maxIterations;
+        this.exactCandidates = exactCandidates;
+        this.pool = pool;
+    }
 
+    @Override
+    public Optional<Schedule> solve(Instance instance, long deadline) {
+        return solve(instance, SearchBudget.until(deadline).withLowerBound(instance), new SearchStatistics());
+    }
 
-                for(Nowicki.Swap swapIterator : nonTabooSwaps){
-                    ResourceOrder RO_Iterator = swapIterator.generateFrom(best_RO);
+    @Override
+    public Optional<Schedule> solve(Instance instance, SearchBudget budget, SearchStatistics statistics) {
+
+        Optional<Schedule> return_schedule = this.baseSolver.solve(instance, budget.deadline);
+
+        // the search moves in place in current, best_RO is a copy updated at each improvement
+        ResourceOrder current = new ResourceOrder(return_schedule.get());
+        ResourceOrder best_RO = current.copy();
+
+        // heads and tails of the current solution, used to estimate the makespan of its neighbors
+        MoveEvaluator evaluator = new MoveEvaluator(instance);
+        evaluator.load(current);
+        int best_makespan = evaluator.makespan();
+        statistics.decodes++;
+        statistics.improved(best_makespan, best_RO);
+
+        // tabuUntil[a * numJobs + b]: iteration until which putting job a before job b is tabu
+        int numJobs = instance.numJobs;
+        long[] tabuUntil = new long[numJobs * numJobs];
+        // solutions already visited: they cannot improve on the best one, going back to them is a waste
+        VisitedSet visited = new VisitedSet(VISITED_CAPACITY);
+        visited.add(current.zobristHash());
+        NeighborDecoder decoder = exactCandidates > 0 ? new NeighborDecoder(current, exactCandidates, pool) : null;
+
+        ArrayList<Move> admissibleSwaps = new ArrayList<Move>();
+        for (long iteration = 0; iteration < maxIterations && !budget.exhausted(statistics); iteration++) {
+            List<? extends Move> swaps = neighborhood.moves(current, evaluator);
+            statistics.neighborsGenerated += swaps.size();
+            if (swaps.isEmpty()) {
+                // the critical path is a single job: the current solution is optimal
+                break;
+            }
 
-                    if ((RO_Iterator.toSchedule().isPresent()) && (RO_Iterator.toSchedule().get().isValid())) {
-                        int makespan_iterator = RO_Iterator.toSchedule().get().makespan();
-                        if (makespan_iterator < best_makespan) {
-                            best_makespan = makespan_iterator;
-                            best_RO = RO_Iterator;
-                            best_Swap = swapIterator;
-                        }
-                    }
+            // a move puts a job before another one on a machine
+            admissibleSwaps.clear();
+            // tabu moves estimated for the aspiration test, and those of them that passed it
+            int aspirationTests = 0;
+            int aspirated = 0;
+            for (Move swap : swaps) {
+                if (visited.contains(swap.hashOfNeighbor(current))) {
+                    statistics.cacheHits++;
+                    continue;
                 }
-
-                if(best_Swap != null){
-
-                    listTaboo.addLast(best_Swap);
-                    if(listTaboo.size() > 10 ){
-                        listTaboo.removeFirst();
+                if (!isTabu(swap, current, tabuUntil, iteration)) {
+                    admissibleSwaps.add(swap);
+                } else {
+                    aspirationTests++;
+                    if (evaluator.estimate(swap) < best_makespan) {
+                        admissibleSwaps.add(swap);
+                        aspirated++;
                     }
                 }
+            }
+            // each neighbor is counted once, even if its estimate is computed again to select the best one
+            if (admissibleSwaps.isEmpty()) {
+                // all moves are tabu, pick the best one anyway
+                admissibleSwaps.addAll(swaps);
+                statistics.neighborsEvaluated += swaps.size();
+            } else {
+                statistics.neighborsEvaluated += admissibleSwaps.size() - aspirated + aspirationTests;
+            }
 
-
-
-                if (previousRO == best_RO) {
-                    recherche = false;
-                }
-                exec_time = System.currentTimeMillis();
+            // move to the admissible neighbor with the best (estimated or decoded) makespan, even if it is not
+            // improving
+            Move selected;
+            if (decoder == null) {
+                selected = admissibleSwaps.get(evaluator.bestMove(admissibleSwaps));
+            } else {
+                selected = admissibleSwaps.get(decoder.bestMove(evaluator, admissibleSwaps));
+                statistics.decodes += decoder.decodes(admissibleSwaps.size());
+            }
+            // the move cannot be undone (the moved job put back on the other side of any of the tasks it
+            // passed) for the next iterations
+            int movedJob = current.getJobOfMachine(selected.machine, selected.fromIndex());
+            int step = selected.fromIndex() < selected.toIndex() ? 1 : -1;
+            for (int i = selected.fromIndex() + step; i != selected.toIndex() + step; i += step) {
+                int passedJob = current.getJobOfMachine(selected.machine, i);
+                if (step > 0)
+                    tabuUntil[movedJob * numJobs + passedJob] = iteration + tenure;
+                else
+                    tabuUntil[passedJob * numJobs + movedJob] = iteration + tenure;
             }
 
-            return best_RO.toSchedule();
+            selected.applyTo(current);
+            if (decoder == null) {
+                evaluator.load(current);
+                statistics.decodes++;
+            } else {
+                // the selected neighbor has already been decoded
+                decoder.loadSelected(evaluator, current);
+            }
+            statistics.iterations++;
+            visited.add(current.zobristHash());
+            if (evaluator.makespan() < best_makespan) {
+                best_makespan = evaluator.makespan();
+                best_RO.copyFrom(current);
+                statistics.improved(best_makespan, best_RO);
+            }
         }
 
+        return best_RO.toSchedule();
+    }
 
-
+    /** Whether the move reverses again one of the pairs of jobs reversed by a recent move, that is puts a job
+     * before another one while it is tabu. Those are the pairs made tabu when the move is applied: the moved job
+     * with each of the tasks it passes.
+     *
+     * @param tabuUntil For each pair of jobs (a * numJobs + b), the iteration until which putting a before b is tabu.
+     */
+    static boolean isTabu(Move move, ResourceOrder order, long[] tabuUntil, long iteration) {
+        int numJobs = order.instance.numJobs;
+        int movedJob = order.getJobOfMachine(move.machine, move.fromIndex());
+        int step = move.fromIndex() < move.toIndex() ? 1 : -1;
+        for (int i = move.fromIndex() + step; i != move.toIndex() + step; i += step) {
+            int passedJob = order.getJobOfMachine(move.machine, i);
+            // moving forward puts the passed job before the moved one, moving backward puts it after
+            int pair = step > 0 ? passedJob * numJobs + movedJob : movedJob * numJobs + passedJob;
+            if (tabuUntil[pair] > iteration)
+                return true;
+        }
+        return false;
     }
+
+}
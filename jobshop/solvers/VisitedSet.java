@@ -0,0 +1,45 @@
+package jobshop.solvers;
+
+/** Bounded set of the Zobrist hashes (see ResourceOrder.zobristHash()) of the solutions visited by a search.
+ *
+ * The table is direct-mapped: a hash can only be stored in the slot given by its low bits, and storing it evicts
+ * whatever was there, so that only recent solutions are guaranteed to be remembered. Nothing is allocated after
+ * construction, which keeps lookups cheap enough to be done for every neighbor. Two different solutions with the
+ * same 64 bits hash are considered identical, which is negligible in practice. A hash of 0 marks an empty slot:
+ * the solution with this hash is never remembered. Not thread-safe: each run owns its set.
+ */
+public final class VisitedSet {
+
+    private final long[] hashes;
+    private final int mask;
+
+    /** Creates an empty set.
+     *
+     * @param capacity Number of slots, rounded up to a power of two.
+     */
+    public VisitedSet(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.hashes = new long[size];
+        this.mask = size - 1;
+    }
+
+    /** Number of slots of the set. */
+    public int capacity() {
+        return hashes.length;
+    }
+
+    /** True if the solution with this hash is in the set. */
+    public boolean contains(long hash) {
+        return hash != 0 && hashes[slot(hash)] == hash;
+    }
+
+    /** Records a solution, evicting the solution that shared its slot, if any. */
+    public void add(long hash) {
+        hashes[slot(hash)] = hash;
+    }
+
+    private int slot(long hash) {
+        // the low bits of Zobrist hashes are already uniformly distributed
+        return (int) hash & mask;
+    }
+}
@@ -0,0 +1,126 @@
+package jobshop.solvers.neighborhood;
+
+import jobshop.encodings.ResourceOrder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/** Implementation of the N6 neighborhood of Balas and Vazacopoulos (1998).
+ *
+ * Like the Nowicki neighborhood, it works on the blocks of the critical path, but instead of swapping the two
+ * tasks at each end of a block, it moves a task of a block to the front or to the back of the block, or moves the
+ * first (resp. last) task of the block after (resp. before) any other task of the block.
+ * Such moves may create a cycle: only those satisfying the sufficient condition of Balas and Vazacopoulos are
+ * generated, which requires the heads and tails of the current solution.
+ */
+public class BalasVazacopoulos extends Neighborhood {
+
+    /**
+     * Represents the move of a task to another position of the same machine in a ResourceOrder encoding,
+     * the tasks in between being shifted by one position.
+     *
+     * Consider the solution in ResourceOrder representation
+     * machine 0 : (0,1) (1,2) (2,2)
+     * machine 1 : (1,1) (0,2) (2,1)
+     * machine 2 : ...
+     *
+     * The insertion with : machine = 1, from = 0 and to = 2
+     * Represent moving (1,1) after (2,1).
+     * Applying this insertion on the above resource order should result in the following one :
+     * machine 0 : (0,1) (1,2) (2,2)
+     * machine 1 : (0,2) (2,1) (1,1)
+     * machine 2 : ...
+     */
+    public static class Insertion extends Move {
+
+        /** index of the task to move (in the resource order encoding) */
+        public final int from;
+
+        /** index of the task once moved (in the resource order encoding) */
+        public final int to;
+
+        /** Creates a new insertion. */
+        Insertion(int machine, int from, int to) {
+            super(machine);
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public void applyTo(ResourceOrder order) {
+            order.moveTask(machine, from, to);
+        }
+
+        @Override
+        public int fromIndex() {
+            return from;
+        }
+
+        @Override
+        public int toIndex() {
+            return to;
+        }
+
+        @Override
+        int estimate(MoveEvaluator evaluator) {
+            return evaluator.estimate(machine, from, to);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Insertion insertion = (Insertion) o;
+            return machine == insertion.machine && from == insertion.from && to == insertion.to;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * machine + from) + to;
+        }
+
+        @Override
+        public String toString() {
+            return "Insertion{machine=" + machine + ", from=" + from + ", to=" + to + '}';
+        }
+    }
+
+    @Override
+    public List<ResourceOrder> generateNeighbors(ResourceOrder current) {
+        MoveEvaluator evaluator = new MoveEvaluator(current.instance);
+        if(!evaluator.load(current))
+            throw new RuntimeException("Cannot generate the neighbors of a cyclic resource order");
+        return moves(current, evaluator).stream().map(move -> move.generateFrom(current)).collect(Collectors.toList());
+    }
+
+    /** Generates all feasible insertions of the solution loaded in the evaluator. */
+    @Override
+    public List<Insertion> moves(ResourceOrder current, MoveEvaluator evaluator) {
+        assert evaluator.current == current : "The evaluator must hold the current solution";
+        List<Insertion> moves = new ArrayList<>();
+        for(Nowicki.Block block : Nowicki.blocksOfCriticalPath(current, evaluator.criticalPathOperations())) {
+            int machine = block.machine;
+            int first = block.firstTask;
+            int last = block.lastTask;
+
+            // forward moves: any task after the last one, the first one after any other
+            for(int u = first ; u < last ; u++)
+                add(moves, evaluator, machine, u, last);
+            for(int v = first + 1 ; v < last ; v++)
+                add(moves, evaluator, machine, first, v);
+            // backward moves: any task before the first one, the last one before any other.
+            // Adjacent tasks are skipped, their swap is already a forward move.
+            for(int v = first + 2 ; v <= last ; v++)
+                add(moves, evaluator, machine, v, first);
+            for(int u = first + 1 ; u < last - 1 ; u++)
+                add(moves, evaluator, machine, last, u);
+        }
+        return moves;
+    }
+
+    private static void add(List<Insertion> moves, MoveEvaluator evaluator, int machine, int from, int to) {
+        if(evaluator.isFeasible(machine, from, to))
+            moves.add(new Insertion(machine, from, to));
+    }
+}
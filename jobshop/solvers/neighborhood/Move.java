@@ -0,0 +1,45 @@
+package jobshop.solvers.neighborhood;
+
+import jobshop.encodings.ResourceOrder;
+
+/** A change in the order of the tasks of one machine, leading from a ResourceOrder to one of its neighbors.
+ *
+ * A move takes the task at position <code>fromIndex()</code> of the machine to position <code>toIndex()</code>,
+ * the tasks in between being shifted by one position: the order of the moved task is reversed with each of them.
+ */
+public abstract class Move {
+
+    /** Machine whose order is changed. */
+    public final int machine;
+
+    Move(int machine) {
+        this.machine = machine;
+    }
+
+    /** Creates a new ResourceOrder order that is the result of performing the move in the original ResourceOrder.
+     *  The original ResourceOrder MUST NOT be modified by this operation.
+     */
+    public ResourceOrder generateFrom(ResourceOrder original) {
+        ResourceOrder order = original.copy();
+        applyTo(order);
+        return order;
+    }
+
+    /** Performs the move in the given ResourceOrder, that is modified, without allocating anything. */
+    public abstract void applyTo(ResourceOrder order);
+
+    /** Position of the moved task in the machine's queue, before the move. */
+    public abstract int fromIndex();
+
+    /** Position of the moved task in the machine's queue, after the move. */
+    public abstract int toIndex();
+
+    /** Zobrist hash of the neighbor (see ResourceOrder.zobristHash()), computed without building it. */
+    public long hashOfNeighbor(ResourceOrder order) {
+        return order.hashAfterMove(machine, fromIndex(), toIndex());
+    }
+
+    /** Estimated makespan of the neighbor, computed from the heads and tails of the solution loaded in the
+     * evaluator, without building the neighbor. */
+    abstract int estimate(MoveEvaluator evaluator);
+}
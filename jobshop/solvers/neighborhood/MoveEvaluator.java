@@ -0,0 +1,619 @@
+package jobshop.solvers.neighborhood;
+
+import jobshop.Instance;
+import jobshop.encodings.ResourceOrder;
+
+import java.util.Arrays;
+import java.util.List;
+
+/** Evaluates the neighbors of a ResourceOrder without building them.
+ *
+ * For every operation of the current solution, the evaluator keeps its head (earliest start time) and its
+ * tail (length of the longest path from the end of the operation to the end of the schedule).
+ * With those, the makespan obtained by swapping two adjacent tasks of a machine can be estimated in constant
+ * time, as proposed by Taillard (1994). The estimate is exact whenever the longest path of the neighbor goes
+ * through one of the two swapped tasks, which is the case for most moves on the critical path.
+ * Moving a task further on its machine is estimated in the same way, in time linear in the distance.
+ *
+ * Operations are identified by the integer <code>job * numTasks + task</code>.
+ */
+public final class MoveEvaluator {
+
+    /** Instance on which the evaluator works. */
+    public final Instance instance;
+
+    // duration of each operation
+    final int[] duration;
+    // earliest start time of each operation in the current solution
+    final int[] head;
+    // longest path from the end of each operation to the end of the schedule
+    final int[] tail;
+    // operation at each position of each machine: opOnMachine[machine * numJobs + index]
+    final int[] opOnMachine;
+    // predecessor and successor of each operation on its machine (-1 if none)
+    final int[] machinePred;
+    final int[] machineSucc;
+    // predecessor and successor of each operation in its job (-1 if none), fixed by the instance
+    final int[] jobPred;
+    final int[] jobSucc;
+    // working arrays of the topological sort
+    final int[] inDegree;
+    final int[] topologicalOrder;
+    // position of each operation in topologicalOrder, kept valid by apply()
+    final int[] rank;
+    // working arrays of apply() and criticalPairs(): marks of the visited operations (equal to visit when visited),
+    // a stack, the ranks and operations of the region to reorder, and a bitset of the ranks of the operations to update
+    final int[] visited;
+    int visit;
+    final int[] stack;
+    final int[] regionRanks;
+    final int[] regionOps;
+    final long[] queued;
+
+    /** Solution currently loaded in the evaluator. */
+    ResourceOrder current;
+
+    /** Makespan of the current solution. */
+    int makespan;
+
+    /** Creates a new evaluator for the given instance. A solution must be loaded before evaluating any move. */
+    public MoveEvaluator(Instance instance) {
+        this.instance = instance;
+        int numOps = instance.numJobs * instance.numTasks;
+        this.duration = new int[numOps];
+        this.head = new int[numOps];
+        this.tail = new int[numOps];
+        this.opOnMachine = new int[numOps];
+        this.machinePred = new int[numOps];
+        this.machineSucc = new int[numOps];
+        this.jobPred = new int[numOps];
+        this.jobSucc = new int[numOps];
+        this.inDegree = new int[numOps];
+        this.topologicalOrder = new int[numOps];
+        this.rank = new int[numOps];
+        this.visited = new int[numOps];
+        this.stack = new int[numOps];
+        this.regionRanks = new int[numOps];
+        this.regionOps = new int[numOps];
+        this.queued = new long[(numOps + 63) / 64];
+
+        for(int job = 0 ; job < instance.numJobs ; job++) {
+            for(int task = 0 ; task < instance.numTasks ; task++) {
+                duration[op(job, task)] = instance.duration(job, task);
+                jobPred[op(job, task)] = task == 0 ? -1 : op(job, task - 1);
+                jobSucc[op(job, task)] = task == instance.numTasks - 1 ? -1 : op(job, task + 1);
+            }
+        }
+    }
+
+    /** Identifier of the operation (job, task). */
+    int op(int job, int task) {
+        return job * instance.numTasks + task;
+    }
+
+    /** Identifier of the i-th operation of a machine in the current solution. */
+    int opOnMachine(int machine, int index) {
+        return opOnMachine[machine * instance.numJobs + index];
+    }
+
+    /** Loads a new solution and computes the heads and tails of all its operations.
+     *
+     * @return False if the resource order contains a cycle, in which case no move should be evaluated.
+     */
+    public boolean load(ResourceOrder order) {
+        this.current = order;
+        int numTasks = instance.numTasks;
+
+        for(int job = 0 ; job < instance.numJobs ; job++) {
+            for(int task = 0 ; task < numTasks ; task++) {
+                int machine = instance.machine(job, task);
+                opOnMachine[machine * instance.numJobs + order.getIndexOnMachine(job, task)] = op(job, task);
+            }
+        }
+
+        // link each operation to its neighbors on the machine
+        for(int machine = 0 ; machine < instance.numMachines ; machine++) {
+            int previous = -1;
+            for(int i = 0 ; i < instance.numJobs ; i++) {
+                int cur = opOnMachine(machine, i);
+                machinePred[cur] = previous;
+                if(previous != -1)
+                    machineSucc[previous] = cur;
+                previous = cur;
+            }
+            machineSucc[previous] = -1;
+        }
+
+        return propagate();
+    }
+
+    /** Loads a solution that another evaluator of the same instance already holds, copying its heads and tails
+     * instead of computing them again.
+     *
+     * @param order Solution to load, with the same order as the one loaded in the other evaluator.
+     */
+    void load(ResourceOrder order, MoveEvaluator other) {
+        assert other.instance == instance;
+        this.current = order;
+        System.arraycopy(other.opOnMachine, 0, opOnMachine, 0, opOnMachine.length);
+        System.arraycopy(other.machinePred, 0, machinePred, 0, machinePred.length);
+        System.arraycopy(other.machineSucc, 0, machineSucc, 0, machineSucc.length);
+        System.arraycopy(other.head, 0, head, 0, head.length);
+        System.arraycopy(other.tail, 0, tail, 0, tail.length);
+        System.arraycopy(other.topologicalOrder, 0, topologicalOrder, 0, topologicalOrder.length);
+        System.arraycopy(other.rank, 0, rank, 0, rank.length);
+        makespan = other.makespan;
+    }
+
+    /** Computes the heads and tails of all operations from the machine and job arcs.
+     *
+     * @return False if the graph contains a cycle.
+     */
+    boolean propagate() {
+        // forward pass: heads are computed in topological order (Kahn's algorithm)
+        int queueEnd = 0;
+        for(int o = 0 ; o < duration.length ; o++) {
+            inDegree[o] = (jobPred[o] == -1 ? 0 : 1) + (machinePred[o] == -1 ? 0 : 1);
+            if(inDegree[o] == 0)
+                topologicalOrder[queueEnd++] = o;
+        }
+        int cmax = 0;
+        for(int queueStart = 0 ; queueStart < queueEnd ; queueStart++) {
+            int o = topologicalOrder[queueStart];
+            int start = 0;
+            int jp = jobPred[o];
+            if(jp != -1)
+                start = head[jp] + duration[jp];
+            int mp = machinePred[o];
+            if(mp != -1)
+                start = Math.max(start, head[mp] + duration[mp]);
+            head[o] = start;
+            cmax = Math.max(cmax, start + duration[o]);
+
+            int js = jobSucc[o];
+            if(js != -1 && --inDegree[js] == 0)
+                topologicalOrder[queueEnd++] = js;
+            int ms = machineSucc[o];
+            if(ms != -1 && --inDegree[ms] == 0)
+                topologicalOrder[queueEnd++] = ms;
+        }
+        makespan = cmax;
+        if(queueEnd != duration.length) {
+            // some operations could not be ordered: the solution is cyclic
+            return false;
+        }
+
+        // backward pass: tails are computed in reverse topological order
+        for(int i = duration.length - 1 ; i >= 0 ; i--) {
+            int o = topologicalOrder[i];
+            rank[o] = i;
+            int q = 0;
+            int js = jobSucc[o];
+            if(js != -1)
+                q = tail[js] + duration[js];
+            int ms = machineSucc[o];
+            if(ms != -1)
+                q = Math.max(q, tail[ms] + duration[ms]);
+            tail[o] = q;
+        }
+        return true;
+    }
+
+    /** Makespan of the loaded solution. */
+    public int makespan() {
+        return makespan;
+    }
+
+    /** Estimates the makespan of the solution obtained by applying the swap to the loaded solution.
+     *
+     * Only swaps of adjacent tasks (such as the ones of the Nowicki neighborhood) are supported.
+     */
+    public int estimate(Nowicki.Swap swap) {
+        assert swap.t2 == swap.t1 + 1 : "Only adjacent tasks can be evaluated";
+        return estimate(swap.machine, swap.t1);
+    }
+
+    /** Estimates the makespan of the solution obtained by applying the move to the loaded solution. */
+    public int estimate(Move move) {
+        return move.estimate(this);
+    }
+
+    /** Estimates the makespan of the solution obtained by swapping the tasks at positions index and index+1
+     * of the machine. */
+    public int estimate(int machine, int index) {
+        // u is before v in the current solution, after the swap v will be executed first
+        int u = opOnMachine(machine, index);
+        int v = opOnMachine(machine, index + 1);
+        int predU = machinePred[u];
+        int succV = machineSucc[v];
+
+        // new heads of v and u
+        int headV = 0;
+        if(jobPred[v] != -1)
+            headV = head[jobPred[v]] + duration[jobPred[v]];
+        if(predU != -1)
+            headV = Math.max(headV, head[predU] + duration[predU]);
+        int headU = headV + duration[v];
+        if(jobPred[u] != -1)
+            headU = Math.max(headU, head[jobPred[u]] + duration[jobPred[u]]);
+
+        // new tails of u and v
+        int tailU = 0;
+        if(jobSucc[u] != -1)
+            tailU = tail[jobSucc[u]] + duration[jobSucc[u]];
+        if(succV != -1)
+            tailU = Math.max(tailU, tail[succV] + duration[succV]);
+        int tailV = tailU + duration[u];
+        if(jobSucc[v] != -1)
+            tailV = Math.max(tailV, tail[jobSucc[v]] + duration[jobSucc[v]]);
+
+        return Math.max(headV + duration[v] + tailV, headU + duration[u] + tailU);
+    }
+
+    /** Estimates the makespan of the solution obtained by moving the task at position <code>from</code> of the
+     * machine to position <code>to</code>, the tasks in between being shifted by one position.
+     *
+     * The heads of the tasks between the two positions are recomputed in their new order, each of them
+     * starting after its job predecessor (with its current head) and the previous task of the sequence.
+     * The estimate is the longest path through the moved sequence, leaving each task either by its job
+     * successor or by the next task on the machine (with their current tails), as proposed by
+     * Balas and Vazacopoulos (1998). For adjacent positions, this is the estimate of a swap.
+     */
+    public int estimate(int machine, int from, int to) {
+        int lo = Math.min(from, to);
+        int hi = Math.max(from, to);
+        int base = machine * instance.numJobs;
+        int before = lo == 0 ? -1 : opOnMachine[base + lo - 1];
+        int after = hi == instance.numJobs - 1 ? -1 : opOnMachine[base + hi + 1];
+
+        // end of the previous task in the new sequence, initially the task before the moved range
+        int end = before == -1 ? 0 : head[before] + duration[before];
+        int estimate = 0;
+        for(int k = lo ; k <= hi ; k++) {
+            // task at position k after the move
+            int o;
+            if(k == to)
+                o = opOnMachine[base + from];
+            else if(from < to)
+                o = opOnMachine[base + k + 1];
+            else
+                o = opOnMachine[base + k - 1];
+
+            int jp = jobPred[o];
+            int start = jp == -1 ? end : Math.max(end, head[jp] + duration[jp]);
+            end = start + duration[o];
+
+            int js = jobSucc[o];
+            int out = js == -1 ? 0 : tail[js] + duration[js];
+            if(k == hi && after != -1)
+                out = Math.max(out, tail[after] + duration[after]);
+            estimate = Math.max(estimate, end + out);
+        }
+        return estimate;
+    }
+
+    /** Sufficient condition for the move of the task at position <code>from</code> of the machine to position
+     * <code>to</code> not to create a cycle, when both tasks are on a critical path (Balas and Vazacopoulos, 1998).
+     *
+     * Moving u after v is safe if no path leaves u by its job successor to reach v, which is the case when
+     * the longest path from the job successor of u to the end is not longer than the one from v.
+     * Symmetrically, moving v before u is safe if the job predecessor of v ends before u does.
+     */
+    public boolean isFeasible(int machine, int from, int to) {
+        int base = machine * instance.numJobs;
+        if(from < to) {
+            int u = opOnMachine[base + from];
+            int v = opOnMachine[base + to];
+            int js = jobSucc[u];
+            return js == -1 || duration[v] + tail[v] >= duration[js] + tail[js];
+        } else {
+            int u = opOnMachine[base + to];
+            int v = opOnMachine[base + from];
+            int jp = jobPred[v];
+            return jp == -1 || head[u] + duration[u] >= head[jp] + duration[jp];
+        }
+    }
+
+    /** Computes a critical path of the loaded solution from its heads, without decoding it. The heads being the
+     * start times of the decoded schedule, this is the path of <code>Schedule.criticalPathOperations()</code>.
+     *
+     * @return The sequence of tasks along the critical path, each task being identified by the
+     *         integer <code>job * numTasks + task</code>.
+     */
+    public int[] criticalPathOperations() {
+        int numTasks = instance.numTasks;
+
+        // select the last task of the job that ends last
+        int last = numTasks - 1;
+        for(int job = 1 ; job < instance.numJobs ; job++) {
+            int op = op(job, numTasks - 1);
+            if(head[op] + duration[op] > head[last] + duration[last])
+                last = op;
+        }
+
+        // follow the delaying predecessors back to a task starting at time 0,
+        // first to get the length of the path, then to fill it from the end
+        int length = 0;
+        for(int op = last ; op != -1 ; op = criticalPredecessor(op))
+            length++;
+        int[] path = new int[length];
+        for(int op = last ; op != -1 ; op = criticalPredecessor(op))
+            path[--length] = op;
+        return path;
+    }
+
+    /** The predecessor that ends exactly when the operation starts, the one on the job having priority,
+     * -1 if the operation starts at time 0. */
+    private int criticalPredecessor(int op) {
+        if(head[op] == 0)
+            return -1;
+        int jp = jobPred[op];
+        if(jp != -1 && head[jp] + duration[jp] == head[op])
+            return jp;
+        return machinePred[op];
+    }
+
+    /** Finds all pairs of adjacent tasks of a machine that are both on a critical path of the loaded solution,
+     * the second one starting as soon as the first one ends. Swapping such a pair never creates a cycle
+     * (van Laarhoven et al., 1992), and every swap of the Nowicki neighborhood is one of them.
+     *
+     * The critical operations are visited backwards from the last ones, through the predecessors that end when
+     * they start, so that the cost depends on the number of critical operations rather than on the size of the
+     * instance. Pairs that could only be swapped because some operations have a zero duration are left out, as
+     * swapping them may create a cycle.
+     *
+     * @param pairs Receives each pair, encoded as <code>machine * numJobs + index</code> of its first task.
+     *              Must have room for numMachines * numJobs entries.
+     * @return The number of pairs found.
+     */
+    public int criticalPairs(int[] pairs) {
+        int numTasks = instance.numTasks;
+        newVisit();
+        int top = 0;
+        for(int job = 0 ; job < instance.numJobs ; job++) {
+            int last = op(job, numTasks - 1);
+            if(head[last] + duration[last] == makespan) {
+                visited[last] = visit;
+                stack[top++] = last;
+            }
+        }
+        // a predecessor ending when a critical operation starts is critical as well
+        int count = 0;
+        while(top > 0) {
+            int o = stack[--top];
+            int jp = jobPred[o];
+            if(jp != -1 && head[jp] + duration[jp] == head[o] && visited[jp] != visit) {
+                visited[jp] = visit;
+                stack[top++] = jp;
+            }
+            int mp = machinePred[o];
+            if(mp != -1 && head[mp] + duration[mp] == head[o]) {
+                // another path from mp to o, through operations of zero duration, would close a cycle
+                int js = jobSucc[mp];
+                if(js == -1 || head[js] + duration[js] > head[o]) {
+                    int job = mp / numTasks;
+                    int task = mp % numTasks;
+                    pairs[count++] = instance.machine(job, task) * instance.numJobs + current.getIndexOnMachine(job, task);
+                }
+                if(visited[mp] != visit) {
+                    visited[mp] = visit;
+                    stack[top++] = mp;
+                }
+            }
+        }
+        return count;
+    }
+
+    /** Swaps the tasks at positions index and index+1 of the machine, in the loaded resource order (that is
+     * modified) and in the evaluator, whose heads and tails are updated.
+     *
+     * Only the heads of the operations following the swapped tasks and the tails of the operations preceding them
+     * are updated, in topological order, with their makespan. The topological order itself is repaired around the
+     * new arc with the algorithm of Pearce and Kelly (2006), so that the cost of a swap depends on the size of the
+     * region it affects rather than on the size of the instance.
+     *
+     * @return False if the swap created a cycle, in which case the resource order should be discarded.
+     */
+    public boolean apply(int machine, int index) {
+        int u = opOnMachine(machine, index);
+        int v = opOnMachine(machine, index + 1);
+        int predU = machinePred[u];
+        int succV = machineSucc[v];
+
+        current.swapTasks(machine, index, index + 1);
+        opOnMachine[machine * instance.numJobs + index] = v;
+        opOnMachine[machine * instance.numJobs + index + 1] = u;
+        // predU -> v -> u -> succV
+        if(predU != -1)
+            machineSucc[predU] = v;
+        machinePred[v] = predU;
+        machineSucc[v] = u;
+        machinePred[u] = v;
+        machineSucc[u] = succV;
+        if(succV != -1)
+            machinePred[succV] = u;
+
+        // only the new arc v -> u may contradict the topological order
+        if(!reorder(v, u))
+            return propagate();
+
+        // operations whose predecessors changed, then those whose successors changed
+        updateHeads(v, u, succV);
+        updateTails(u, v, predU);
+        int cmax = 0;
+        for(int job = 0 ; job < instance.numJobs ; job++) {
+            int last = op(job, instance.numTasks - 1);
+            cmax = Math.max(cmax, head[last] + duration[last]);
+        }
+        makespan = cmax;
+        return true;
+    }
+
+    /** Restores the topological order after the insertion of the arc from -> to, where to is before from
+     * (Pearce and Kelly, 2006): the operations that reach from are moved before the ones reachable from to,
+     * reusing their ranks. Only operations ranked between to and from are visited.
+     *
+     * @return False if the arc closes a cycle.
+     */
+    private boolean reorder(int from, int to) {
+        int lower = rank[to];
+        int upper = rank[from];
+        newVisit();
+
+        // operations reachable from to, ranked before from
+        int forward = 0;
+        int top = 0;
+        visited[to] = visit;
+        stack[top++] = to;
+        while(top > 0) {
+            int o = stack[--top];
+            regionRanks[forward++] = rank[o];
+            if(jobSucc[o] == from || machineSucc[o] == from)
+                return false;
+            top = push(jobSucc[o], lower, upper, top);
+            top = push(machineSucc[o], lower, upper, top);
+        }
+
+        // operations reaching from, ranked after to, stored after the previous ones
+        int size = forward;
+        visited[from] = visit;
+        stack[top++] = from;
+        while(top > 0) {
+            int o = stack[--top];
+            regionRanks[size++] = rank[o];
+            top = push(jobPred[o], lower, upper, top);
+            top = push(machinePred[o], lower, upper, top);
+        }
+
+        // the operations reaching from, then the ones reachable from to, each group in its current order,
+        // take the ranks of the region in increasing order
+        Arrays.sort(regionRanks, 0, forward);
+        Arrays.sort(regionRanks, forward, size);
+        int n = 0;
+        for(int i = forward ; i < size ; i++)
+            regionOps[n++] = topologicalOrder[regionRanks[i]];
+        for(int i = 0 ; i < forward ; i++)
+            regionOps[n++] = topologicalOrder[regionRanks[i]];
+        Arrays.sort(regionRanks, 0, size);
+        for(int i = 0 ; i < size ; i++) {
+            rank[regionOps[i]] = regionRanks[i];
+            topologicalOrder[regionRanks[i]] = regionOps[i];
+        }
+        return true;
+    }
+
+    /** Starts a new visit: no operation is marked as visited anymore. */
+    private void newVisit() {
+        if(++visit == 0) {
+            // the marks of 2^32 visits ago would be mistaken for current ones
+            Arrays.fill(visited, 0);
+            visit = 1;
+        }
+    }
+
+    /** Pushes the operation on the stack of reorder() if it is not -1, has not been visited and is ranked strictly
+     * between the bounds.
+     *
+     * @return The new size of the stack.
+     */
+    private int push(int o, int lower, int upper, int top) {
+        if(o == -1 || visited[o] == visit || rank[o] <= lower || rank[o] >= upper)
+            return top;
+        visited[o] = visit;
+        stack[top] = o;
+        return top + 1;
+    }
+
+    /** Recomputes the heads of the given operations (-1 being ignored), whose predecessors changed, and of all
+     * the operations whose head changes as a consequence. Operations are queued in a bitset indexed by their rank,
+     * which is scanned by increasing rank: successors always have a higher rank than the current operation. */
+    private void updateHeads(int a, int b, int c) {
+        int pending = enqueue(a) + enqueue(b) + enqueue(c);
+        for(int word = 0 ; pending > 0 ; word++) {
+            while(queued[word] != 0) {
+                int bit = Long.numberOfTrailingZeros(queued[word]);
+                queued[word] &= ~(1L << bit);
+                pending--;
+                int o = topologicalOrder[(word << 6) + bit];
+                int start = 0;
+                int jp = jobPred[o];
+                if(jp != -1)
+                    start = head[jp] + duration[jp];
+                int mp = machinePred[o];
+                if(mp != -1)
+                    start = Math.max(start, head[mp] + duration[mp]);
+                if(start != head[o]) {
+                    head[o] = start;
+                    pending += enqueue(jobSucc[o]) + enqueue(machineSucc[o]);
+                }
+            }
+        }
+    }
+
+    /** Recomputes the tails of the given operations (-1 being ignored), whose successors changed, and of all
+     * the operations whose tail changes as a consequence, scanning the queued ranks downwards. */
+    private void updateTails(int a, int b, int c) {
+        int pending = enqueue(a) + enqueue(b) + enqueue(c);
+        for(int word = queued.length - 1 ; pending > 0 ; word--) {
+            while(queued[word] != 0) {
+                int bit = 63 - Long.numberOfLeadingZeros(queued[word]);
+                queued[word] &= ~(1L << bit);
+                pending--;
+                int o = topologicalOrder[(word << 6) + bit];
+                int q = 0;
+                int js = jobSucc[o];
+                if(js != -1)
+                    q = tail[js] + duration[js];
+                int ms = machineSucc[o];
+                if(ms != -1)
+                    q = Math.max(q, tail[ms] + duration[ms]);
+                if(q != tail[o]) {
+                    tail[o] = q;
+                    pending += enqueue(jobPred[o]) + enqueue(machinePred[o]);
+                }
+            }
+        }
+    }
+
+    /** Queues the operation for an update, unless it is -1 or already queued.
+     *
+     * @return The number of operations added to the queue, 0 or 1.
+     */
+    private int enqueue(int o) {
+        if(o == -1)
+            return 0;
+        int r = rank[o];
+        long bit = 1L << r;
+        if((queued[r >>> 6] & bit) != 0)
+            return 0;
+        queued[r >>> 6] |= bit;
+        return 1;
+    }
+
+    /** Returns the indices of the moves sorted by increasing estimated makespan, ties being broken by the order
+     * of the moves in the list. */
+    public int[] movesByEstimate(List<? extends Move> moves) {
+        // (estimate << 32 | index) sorts by estimate, then by index
+        long[] keys = new long[moves.size()];
+        for(int i = 0 ; i < keys.length ; i++)
+            keys[i] = ((long) moves.get(i).estimate(this) << 32) | i;
+        Arrays.sort(keys);
+        int[] indices = new int[keys.length];
+        for(int i = 0 ; i < keys.length ; i++)
+            indices[i] = (int) keys[i];
+        return indices;
+    }
+
+    /** Returns the index of the move with the smallest estimated makespan, or -1 if the list is empty.
+     * Ties are broken by the order of the moves in the list. */
+    public int bestMove(List<? extends Move> swaps) {
+        if(swaps.isEmpty())
+            return -1;
+        // (estimate << 32 | index) is smallest for the smallest estimate, then the smallest index
+        long best = Long.MAX_VALUE;
+        for(int i = 0 ; i < swaps.size() ; i++) {
+            best = Math.min(best, ((long) swaps.get(i).estimate(this) << 32) | i);
+        }
+        return (int) best;
+    }
+}
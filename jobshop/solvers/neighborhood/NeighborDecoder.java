@@ -0,0 +1,166 @@
+package jobshop.solvers.neighborhood;
+
+import jobshop.encodings.ResourceOrder;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/** Selects a move by decoding the most promising neighbors exactly.
+ *
+ * Estimates from heads and tails are only exact when the longest path of the neighbor goes through the moved
+ * tasks, which is often not the case for the long insertions of the N6 neighborhood. The moves with the best
+ * estimates are thus built and decoded, each one costing as much as loading a solution in a MoveEvaluator.
+ * Those decodes are independent: with a pool, the candidates are split in contiguous chunks, each one decoded
+ * by a task with its own scratch orders and evaluators. The heads and tails of the selected neighbor are kept,
+ * so that moving to it does not cost another decode.
+ *
+ * The partial results are reduced on (makespan, position of the move in the list), so the selected move only
+ * depends on the list of moves, whether the candidates are decoded in parallel or not.
+ */
+public final class NeighborDecoder {
+
+    /** Below this number of operations, decodes are too short to be worth splitting on the pool. */
+    static final int PARALLEL_THRESHOLD = 1000;
+
+    /** Number of moves decoded at each selection. */
+    public final int candidates;
+    /** Pool on which the decodes are split, null to decode in the calling thread. */
+    final ForkJoinPool pool;
+    // two scratch orders and evaluators per chunk, at slots 2 * chunk and 2 * chunk + 1: one of them holds the
+    // best neighbor of the chunk (bestSlot[chunk]), the other one the neighbor being decoded
+    final ResourceOrder[] orders;
+    final MoveEvaluator[] evaluators;
+    final int[] bestSlot;
+    // best (makespan << 32 | index) of each chunk
+    final long[] bestOfChunk;
+    // evaluator holding the neighbor selected by the last call to bestMove(), null if it is cyclic
+    MoveEvaluator selected;
+
+    /** Creates a new decoder.
+     *
+     * @param current Solution whose neighbors will be decoded, used to size the scratch orders.
+     * @param candidates Number of moves with the best estimates that are decoded at each selection.
+     * @param pool Pool on which the decodes are split, null to decode all of them in the calling thread.
+     *             Small instances are always decoded in the calling thread.
+     */
+    public NeighborDecoder(ResourceOrder current, int candidates, ForkJoinPool pool) {
+        this.candidates = candidates;
+        boolean parallel = pool != null && current.instance.numJobs * current.instance.numTasks >= PARALLEL_THRESHOLD;
+        this.pool = parallel ? pool : null;
+        int chunks = parallel ? Math.max(1, Math.min(candidates, pool.getParallelism())) : 1;
+        this.orders = new ResourceOrder[2 * chunks];
+        this.evaluators = new MoveEvaluator[2 * chunks];
+        for(int i = 0 ; i < 2 * chunks ; i++) {
+            orders[i] = current.copy();
+            evaluators[i] = new MoveEvaluator(current.instance);
+        }
+        this.bestSlot = new int[chunks];
+        for(int chunk = 0 ; chunk < chunks ; chunk++)
+            bestSlot[chunk] = 2 * chunk;
+        this.bestOfChunk = new long[chunks];
+    }
+
+    /** Returns the index of the move of the list whose neighbor has the smallest makespan, among the
+     * <code>candidates</code> moves with the best estimates, or -1 if the list is empty.
+     * Ties are broken by the order of the moves in the list.
+     *
+     * @param evaluator Evaluator holding the solution to which the moves apply, that is not modified.
+     */
+    public int bestMove(MoveEvaluator evaluator, List<? extends Move> moves) {
+        selected = null;
+        if(moves.isEmpty())
+            return -1;
+        int[] byEstimate = evaluator.movesByEstimate(moves);
+        int count = Math.min(candidates, byEstimate.length);
+        int chunks = bestSlot.length;
+        if(pool == null)
+            decode(evaluator.current, moves, byEstimate, count, 0);
+        else
+            pool.invoke(new DecodeTask(evaluator.current, moves, byEstimate, count, 0, chunks));
+
+        int chunk = 0;
+        for(int c = 1 ; c < chunks ; c++) {
+            if(bestOfChunk[c] < bestOfChunk[chunk])
+                chunk = c;
+        }
+        if((int) (bestOfChunk[chunk] >>> 32) != Integer.MAX_VALUE)
+            selected = evaluators[bestSlot[chunk]];
+        return (int) bestOfChunk[chunk];
+    }
+
+    /** Number of moves decoded by bestMove() for a list of the given size. */
+    public int decodes(int numMoves) {
+        return Math.min(candidates, numMoves);
+    }
+
+    /** Loads in the evaluator the neighbor selected by the last call to bestMove(), reusing its decode.
+     *
+     * @param order Order of the evaluator, to which the selected move has been applied.
+     * @return False if the neighbor is cyclic.
+     */
+    public boolean loadSelected(MoveEvaluator evaluator, ResourceOrder order) {
+        if(selected == null)
+            return evaluator.load(order);
+        evaluator.load(order, selected);
+        return true;
+    }
+
+    /** Decodes the candidates of the given chunk with its scratch orders and evaluators, and records the best
+     * (makespan << 32 | index) of the chunk, a cyclic neighbor having a makespan of Integer.MAX_VALUE. */
+    void decode(ResourceOrder current, List<? extends Move> moves, int[] byEstimate, int count, int chunk) {
+        int chunks = bestSlot.length;
+        int from = (int) ((long) count * chunk / chunks);
+        int to = (int) ((long) count * (chunk + 1) / chunks);
+        long best = Long.MAX_VALUE;
+        for(int i = from ; i < to ; i++) {
+            int index = byEstimate[i];
+            // decode in the slot that does not hold the best neighbor so far
+            int slot = bestSlot[chunk] ^ 1;
+            ResourceOrder order = orders[slot];
+            MoveEvaluator decoder = evaluators[slot];
+            order.copyFrom(current);
+            moves.get(index).applyTo(order);
+            int makespan = decoder.load(order) ? decoder.makespan() : Integer.MAX_VALUE;
+            long key = ((long) makespan << 32) | index;
+            if(key < best) {
+                best = key;
+                bestSlot[chunk] = slot;
+            }
+        }
+        bestOfChunk[chunk] = best;
+    }
+
+    /** Decode of a range of chunks, recursively split in halves on the pool. */
+    @SuppressWarnings("serial") // tasks are never serialized
+    final class DecodeTask extends RecursiveAction {
+        final ResourceOrder current;
+        final List<? extends Move> moves;
+        final int[] byEstimate;
+        final int count;
+        final int from;
+        final int to;
+
+        DecodeTask(ResourceOrder current, List<? extends Move> moves, int[] byEstimate, int count, int from, int to) {
+            this.current = current;
+            this.moves = moves;
+            this.byEstimate = byEstimate;
+            this.count = count;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if(to - from == 1) {
+                decode(current, moves, byEstimate, count, from);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            DecodeTask left = new DecodeTask(current, moves, byEstimate, count, from, middle);
+            left.fork();
+            new DecodeTask(current, moves, byEstimate, count, middle, to).compute();
+            left.join();
+        }
+    }
+}
@@ -12,4 +12,12 @@ public abstract class Neighborhood {
     /** Generates all neighbors for the current solution.  */
     public abstract List<ResourceOrder> generateNeighbors(ResourceOrder current);
 
+    /** Generates the moves leading to all neighbors of the current solution, without building them.
+     *
+     * @param current Solution whose neighbors are generated.
+     * @param evaluator Evaluator in which the current solution is loaded. Neighborhoods whose moves are only
+     *                  feasible under conditions on heads and tails use it to filter out moves creating cycles.
+     */
+    public abstract List<? extends Move> moves(ResourceOrder current, MoveEvaluator evaluator);
+
 }
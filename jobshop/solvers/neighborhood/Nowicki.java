@@ -1,15 +1,12 @@
 package jobshop.solvers.neighborhood;
 
 import jobshop.encodings.ResourceOrder;
-import jobshop.encodings.Task;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.stream.Collectors;
 
-import java.util.HashMap;
-
 /** Implementation of the Nowicki and Smutnicki neighborhood.
  *
  * It works on the ResourceOrder encoding by generating two neighbors for each block
@@ -77,9 +74,7 @@ public class Nowicki extends Neighborhood {
      * machine 1 : (2,1) (0,2) (1,1)
      * machine 2 : ...
      */
-    public static class Swap {
-        /** machine on which to perform the swap */
-        public final int machine;
+    public static class Swap extends Move {
 
         /** index of one task to be swapped (in the resource order encoding).
          * t1 should appear earlier than t2 in the resource order. */
@@ -90,7 +85,7 @@ public class Nowicki extends Neighborhood {
 
         /** Creates a new swap of two tasks. */
         Swap(int machine, int t1, int t2) {
-            this.machine = machine;
+            super(machine);
             if (t1 < t2) {
                 this.t1 = t1;
                 this.t2 = t2;
@@ -101,18 +96,30 @@ public class Nowicki extends Neighborhood {
         }
 
 
-        /** Creates a new ResourceOrder order that is the result of performing the swap in the original ResourceOrder.
-         *  The original ResourceOrder MUST NOT be modified by this operation.
-         */
-        public ResourceOrder generateFrom(ResourceOrder original) {
-            ResourceOrder new_RO = original.copy();
-//            Task task_t1 = new_RO.getTaskFromMatrix(machine,t1);
-//            Task task_t2 = new_RO.getTaskFromMatrix(machine,t2);
+        /** Performs the swap in the given ResourceOrder, that is modified. */
+        @Override
+        public void applyTo(ResourceOrder order) {
+            order.swapTasks(machine,t1,t2);
+        }
+
+        @Override
+        public long hashOfNeighbor(ResourceOrder order) {
+            return order.hashAfterSwap(machine, t1, t2);
+        }
+
+        @Override
+        public int fromIndex() {
+            return t1;
+        }
 
-            new_RO.swapTasks(machine,t1,t2);
-//            new_RO.setTaskinMatrix(machine,t2,task_t1);
+        @Override
+        public int toIndex() {
+            return t2;
+        }
 
-            return new_RO;
+        @Override
+        int estimate(MoveEvaluator evaluator) {
+            return evaluator.estimate(machine, t1);
         }
 
         @Override
@@ -130,6 +137,14 @@ public class Nowicki extends Neighborhood {
     }
 
 
+    /** Generates all swaps of the solution loaded in the evaluator, whose critical path is read from its heads
+     * instead of decoding the solution. */
+    @Override
+    public List<Swap> moves(ResourceOrder current, MoveEvaluator evaluator) {
+        assert evaluator.current == current : "The evaluator must hold the current solution";
+        return swaps(blocksOfCriticalPath(current, evaluator.criticalPathOperations()));
+    }
+
     @Override
     public List<ResourceOrder> generateNeighbors(ResourceOrder current) {
         // convert the list of swaps into a list of neighbors (function programming FTW)
@@ -140,9 +155,14 @@ public class Nowicki extends Neighborhood {
     /** Generates all swaps of the given ResourceOrder.
      * This method can be used if one wants to access the inner fields of a neighbors. */
     public List<Swap> allSwaps(ResourceOrder current) {
+        return swaps(blocksOfCriticalPath(current));
+    }
+
+    /** Generates the swaps of all the given blocks. */
+    private List<Swap> swaps(List<Block> blocks) {
         List<Swap> neighbors = new ArrayList<>();
         // iterate over all blocks of the critical path
-        for(var block : blocksOfCriticalPath(current)) {
+        for(var block : blocks) {
             // for this block, compute all neighbors and add them to the list of neighbors
             neighbors.addAll(neighbors(block));
         }
@@ -151,47 +171,37 @@ public class Nowicki extends Neighborhood {
 
     /** Returns a list of all the blocks of the critical path. */
     public static List<Block> blocksOfCriticalPath(ResourceOrder order) {
+        return blocksOfCriticalPath(order, order.toSchedule().get().criticalPathOperations());
+    }
+
+    /** Returns a list of all the blocks of the given critical path of the resource order.
+     *
+     * @param criticalPath Tasks of the critical path, identified by <code>job * numTasks + task</code>.
+     */
+    public static List<Block> blocksOfCriticalPath(ResourceOrder order, int[] criticalPath) {
 
         ArrayList<Block> list_blocks = new ArrayList<Block>();
-        List<Task> criticalPath = order.toSchedule().get().criticalPath();
-        boolean block_is_created = false;
-        Block block_a_ajouter = null;
-        int previousNumMachine = -1;
-        int previousIndexonMachine = -1;
-
-        for(Task task_iterator : criticalPath){
-           int num_machine_task = order.instance.machine(task_iterator);
-
-            if(num_machine_task == previousNumMachine){
-
-                if(block_is_created){
-                    block_a_ajouter.setLastTask(order.getIndexOnMachine(task_iterator,num_machine_task));
-                }
-                else{
-                    block_a_ajouter = new Block(num_machine_task,previousIndexonMachine,order.getIndexOnMachine(task_iterator,num_machine_task));
-                    block_is_created = true;
-                }
+        int numTasks = order.instance.numTasks;
+
+        // cut the critical path into maximal sequences of tasks on the same machine
+        int blockStart = 0;
+        for(int i = 1 ; i <= criticalPath.length ; i++) {
+            int previousMachine = order.instance.machine(criticalPath[i-1] / numTasks, criticalPath[i-1] % numTasks);
+            if(i < criticalPath.length
+                    && order.instance.machine(criticalPath[i] / numTasks, criticalPath[i] % numTasks) == previousMachine) {
+                continue;
             }
-            else{
-
-                if(block_is_created){
-                    list_blocks.add(block_a_ajouter);
-                    block_is_created = false;
-                    block_a_ajouter = null;
-                }
+            // the block [blockStart, i-1] ends here, only keep it if it has at least two tasks
+            if(i - 1 > blockStart) {
+                int first = criticalPath[blockStart];
+                int last = criticalPath[i-1];
+                list_blocks.add(new Block(previousMachine,
+                        order.getIndexOnMachine(first / numTasks, first % numTasks),
+                        order.getIndexOnMachine(last / numTasks, last % numTasks)));
             }
-            previousIndexonMachine = order.getIndexOnMachine(task_iterator,num_machine_task);
-            previousNumMachine = num_machine_task;
+            blockStart = i;
         }
 
-        if(block_a_ajouter != null){
-            list_blocks.add(block_a_ajouter);
-        }
-
-
-       /* for(Block blockIterator : list_blocks){
-            blockIterator.printBlock();
-        }*/
         return list_blocks;
     }
 
@@ -0,0 +1,103 @@
+package jobshop.encodings;
+
+import jobshop.Generator;
+import jobshop.Instance;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Consistency of the indices and of the Zobrist hash of a ResourceOrder when slots are overwritten. */
+public class ResourceOrderTest {
+
+    static final Instance instance = Generator.generate("test", 3, 3, 1, 1, Generator.Distribution.UNIFORM, 1, 9);
+
+    /** Task of the job on the machine. */
+    static Task task(int job, int machine) {
+        return new Task(job, instance.task_with_machine(job, machine));
+    }
+
+    @Test
+    public void overwritingASlotRemovesTheDisplacedTask() {
+        ResourceOrder order = new ResourceOrder(instance);
+        order.setTaskinMatrix(0, 0, task(0, 0));
+        order.setTaskinMatrix(0, 0, task(1, 0));
+
+        assertEquals(-1, order.getIndexOnMachine(0, task(0, 0).task));
+        assertEquals(0, order.getIndexOnMachine(1, task(1, 0).task));
+        assertEquals(task(1, 0), order.getTaskOfMachine(0, 0));
+
+        ResourceOrder expected = new ResourceOrder(instance);
+        expected.setTaskinMatrix(0, 0, task(1, 0));
+        assertEquals(expected.zobristHash(), order.zobristHash());
+    }
+
+    @Test
+    public void movingATaskEmptiesItsPreviousSlot() {
+        ResourceOrder order = new ResourceOrder(instance);
+        order.setTaskinMatrix(0, 0, task(0, 0));
+        order.setTaskinMatrix(0, 2, task(0, 0));
+
+        assertEquals(2, order.getIndexOnMachine(0, task(0, 0).task));
+        assertEquals(-1, order.getJobOfMachine(0, 0));
+
+        ResourceOrder expected = new ResourceOrder(instance);
+        expected.setTaskinMatrix(0, 2, task(0, 0));
+        assertEquals(expected.zobristHash(), order.zobristHash());
+    }
+
+    @Test
+    public void overwritingAFullOrderKeepsTheHashConsistent() {
+        ResourceOrder order = new ResourceOrder(instance);
+        for(int machine = 0 ; machine < instance.numMachines ; machine++)
+            for(int job = 0 ; job < instance.numJobs ; job++)
+                order.addTaskToMachine(machine, task(job, machine));
+        // reverse the jobs of machine 1 slot by slot
+        for(int i = 0 ; i < instance.numJobs ; i++)
+            order.setTaskinMatrix(1, i, task(instance.numJobs - 1 - i, 1));
+
+        ResourceOrder expected = new ResourceOrder(instance);
+        for(int machine = 0 ; machine < instance.numMachines ; machine++)
+            for(int i = 0 ; i < instance.numJobs ; i++)
+                expected.addTaskToMachine(machine, task(machine == 1 ? instance.numJobs - 1 - i : i, machine));
+        assertEquals(expected.zobristHash(), order.zobristHash());
+        for(int job = 0 ; job < instance.numJobs ; job++)
+            assertEquals(instance.numJobs - 1 - job, order.getIndexOnMachine(job, task(job, 1).task));
+    }
+
+    @Test
+    public void anOrderFilledSlotBySlotCanBeDecoded() {
+        // last slots first, so that the first ones stay empty for a while
+        ResourceOrder order = new ResourceOrder(instance);
+        for(int machine = 0 ; machine < instance.numMachines ; machine++)
+            for(int job = instance.numJobs - 1 ; job >= 0 ; job--)
+                order.setTaskinMatrix(machine, job, task(job, machine));
+
+        ResourceOrder expected = new ResourceOrder(instance);
+        for(int machine = 0 ; machine < instance.numMachines ; machine++)
+            for(int job = 0 ; job < instance.numJobs ; job++)
+                expected.addTaskToMachine(machine, task(job, machine));
+        assertEquals(expected, order);
+        assertEquals(expected.toString(), order.toString());
+
+        Optional<Schedule> schedule = order.toSchedule();
+        assertTrue(schedule.isPresent());
+        assertTrue(schedule.get().isValid());
+        assertEquals(expected.toSchedule().get().makespan(), schedule.get().makespan());
+    }
+
+    @Test
+    public void anOrderWithEmptySlotsCannotBeDecoded() {
+        ResourceOrder order = new ResourceOrder(instance);
+        for(int machine = 0 ; machine < instance.numMachines ; machine++)
+            for(int job = 0 ; job < instance.numJobs ; job++)
+                order.addTaskToMachine(machine, task(job, machine));
+        // the task of job 0 leaves the first slot of machine 1 empty
+        order.setTaskinMatrix(1, instance.numJobs - 1, task(0, 1));
+
+        assertFalse(order.toSchedule().isPresent());
+    }
+}